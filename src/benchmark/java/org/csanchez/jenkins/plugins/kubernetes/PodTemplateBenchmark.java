@@ -0,0 +1,153 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import org.csanchez.jenkins.plugins.kubernetes.model.KeyValueEnvVar;
+import org.csanchez.jenkins.plugins.kubernetes.model.TemplateEnvVar;
+import org.csanchez.jenkins.plugins.kubernetes.pod.yaml.Merge;
+import org.csanchez.jenkins.plugins.kubernetes.pod.yaml.Overrides;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the pod template pipeline run on every agent launch: unwrapping the inheritance chain, directly or
+ * through the cache of the cloud, parsing and merging yaml fragments, and building the pod.
+ * <p>Templates have 5 levels of inheritance, each level with 10 containers having 50 environment variables and a
+ * yaml fragment describing as many containers.
+ */
+@JmhBenchmark
+public class PodTemplateBenchmark {
+
+    static final int LEVELS = 5;
+    static final int CONTAINERS = 10;
+    static final int ENV_VARS = 50;
+
+    @State(Scope.Benchmark)
+    public static class TemplateState extends JmhBenchmarkState {
+
+        @Param({"merge", "override"})
+        public String yamlMergeStrategy;
+
+        List<PodTemplate> templates;
+        PodTemplate leaf;
+        PodTemplate unwrapped;
+        UnwrappedTemplateCache cache;
+        KubernetesSlave agent;
+        String yaml;
+        Pod parentPod;
+        Pod childPod;
+
+        @Override
+        public void setup() throws Exception {
+            KubernetesCloud cloud = new KubernetesCloud("kubernetes");
+            cloud.setJenkinsUrl("http://jenkins.example.com/");
+            getJenkins().clouds.add(cloud);
+
+            templates = new ArrayList<>();
+            for (int level = 0; level < LEVELS; level++) {
+                PodTemplate t = new PodTemplate();
+                t.setName("level-" + level);
+                if (level > 0) {
+                    t.setInheritFrom("level-" + (level - 1));
+                }
+                t.setYamlMergeStrategy("merge".equals(yamlMergeStrategy) ? new Merge() : new Overrides());
+                t.setContainers(containers(level));
+                t.setEnvVars(envVars("POD_" + level));
+                t.setYaml(yaml(level));
+                templates.add(t);
+            }
+            leaf = templates.get(LEVELS - 1);
+            unwrapped = PodTemplateUtils.unwrap(leaf, null, templates);
+            cache = new UnwrappedTemplateCache();
+            cache.unwrap(leaf, null, templates);
+            agent = new KubernetesSlave.Builder().podTemplate(unwrapped).cloud(cloud).build();
+            yaml = yaml(0);
+            parentPod = PodTemplateUtils.parseFromYaml(yaml(0));
+            childPod = PodTemplateUtils.parseFromYaml(yaml(1));
+        }
+
+        private static List<ContainerTemplate> containers(int level) {
+            List<ContainerTemplate> containers = new ArrayList<>();
+            for (int i = 0; i < CONTAINERS; i++) {
+                // half of the containers override the ones of the parent
+                String name = i % 2 == 0 ? "container-" + i : "container-" + level + "-" + i;
+                ContainerTemplate container = new ContainerTemplate(name, "image-" + level + ":" + i);
+                container.setEnvVars(envVars("CONTAINER_" + level + "_" + i));
+                containers.add(container);
+            }
+            return containers;
+        }
+
+        private static List<TemplateEnvVar> envVars(String prefix) {
+            List<TemplateEnvVar> envVars = new ArrayList<>();
+            for (int i = 0; i < ENV_VARS; i++) {
+                envVars.add(new KeyValueEnvVar(prefix + "_" + i, "value-" + i));
+            }
+            return envVars;
+        }
+
+        static String yaml(int level) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("apiVersion: v1\nkind: Pod\nmetadata:\n  labels:\n    level: \"")
+                    .append(level)
+                    .append("\"\n  annotations:\n    level: \"")
+                    .append(level)
+                    .append("\"\nspec:\n  containers:\n");
+            for (int i = 0; i < CONTAINERS; i++) {
+                sb.append("  - name: yaml-container-").append(i).append('\n');
+                sb.append("    image: yaml-image-").append(level).append(':').append(i).append('\n');
+                sb.append("    resources:\n      requests:\n        cpu: 100m\n        memory: 256Mi\n");
+                sb.append("    env:\n");
+                for (int j = 0; j < ENV_VARS; j++) {
+                    sb.append("    - name: YAML_").append(level).append('_').append(j).append('\n');
+                    sb.append("      value: \"value-").append(j).append("\"\n");
+                }
+            }
+            sb.append("  volumes:\n  - name: workspace-").append(level).append("\n    emptyDir: {}\n");
+            return sb.toString();
+        }
+    }
+
+    @Benchmark
+    public PodTemplate unwrap(TemplateState state) {
+        return PodTemplateUtils.unwrap(state.leaf, null, state.templates);
+    }
+
+    @Benchmark
+    public PodTemplate unwrapCached(TemplateState state) {
+        return state.cache.unwrap(state.leaf, null, state.templates);
+    }
+
+    @Benchmark
+    public PodTemplate combineTemplates(TemplateState state) {
+        return PodTemplateUtils.combine(state.templates.get(LEVELS - 2), state.leaf);
+    }
+
+    @Benchmark
+    public Pod combinePods(TemplateState state) {
+        return PodTemplateUtils.combine(state.parentPod, state.childPod);
+    }
+
+    @Benchmark
+    public Pod parseFromYaml(TemplateState state) {
+        return PodTemplateUtils.parseFromYaml(state.yaml);
+    }
+
+    @Benchmark
+    public Pod parseFromYamlUncached(TemplateState state) throws Exception {
+        return Serialization2.unmarshal(
+                new ByteArrayInputStream(state.yaml.getBytes(StandardCharsets.UTF_8)), Pod.class);
+    }
+
+    @Benchmark
+    public Pod build(TemplateState state) {
+        return new PodTemplateBuilder(state.unwrapped, state.agent).build();
+    }
+}
@@ -0,0 +1,63 @@
+package org.csanchez.jenkins.plugins.kubernetes.pipeline;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the masking of the command echoed by the {@code container} step, writing it a byte at a time as
+ * before, or at once.
+ * <p>Commands are made of statements of about 20 characters, one of four being masked.
+ */
+@JmhBenchmark
+public class MaskOutputStreamBenchmark {
+
+    @State(Scope.Thread)
+    public static class CommandState {
+
+        @Param({"10", "100", "1000"})
+        public int statements;
+
+        byte[] command;
+        boolean[] masks;
+        ByteArrayOutputStream out;
+
+        @Setup
+        public void setup() {
+            StringBuilder sb = new StringBuilder();
+            masks = new boolean[statements];
+            for (int i = 0; i < statements; i++) {
+                sb.append("\"--option-").append(i).append("=value\" ");
+                masks[i] = i % 4 == 3;
+            }
+            command = sb.toString().getBytes(StandardCharsets.UTF_8);
+            out = new ByteArrayOutputStream(command.length);
+        }
+    }
+
+    @Benchmark
+    public int perByte(CommandState state) throws IOException {
+        state.out.reset();
+        ContainerExecDecorator.MaskOutputStream masked =
+                new ContainerExecDecorator.MaskOutputStream(state.out, state.masks);
+        for (byte b : state.command) {
+            masked.write(b);
+        }
+        return state.out.size();
+    }
+
+    @Benchmark
+    public int bulk(CommandState state) throws IOException {
+        state.out.reset();
+        ContainerExecDecorator.MaskOutputStream masked =
+                new ContainerExecDecorator.MaskOutputStream(state.out, state.masks);
+        masked.write(state.command, 0, state.command.length);
+        return state.out.size();
+    }
+}
@@ -0,0 +1,89 @@
+package org.csanchez.jenkins.plugins.kubernetes.pipeline;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import org.jenkinsci.plugins.credentialsbinding.masking.SecretPatterns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the masking of pod secrets in container output, with the aggregate regular expression of
+ * credentials-binding applied line by line, or the multi-literal matcher applied to the bytes.
+ * <p>Each operation masks 1 MiB of build log written in 8 KiB chunks, one line of fifty holding a secret.
+ */
+@JmhBenchmark
+public class SecretsMaskerBenchmark {
+
+    static final int LOG_SIZE = 1024 * 1024;
+    static final int CHUNK_SIZE = 8 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class LogState extends JmhBenchmarkState {
+
+        @Param({"5", "50", "500"})
+        public int secrets;
+
+        byte[] log;
+        Pattern pattern;
+        SecretsMaskingOutputStream.Matcher matcher;
+
+        @Override
+        public void setup() {
+            Random random = new Random(42);
+            Set<String> values = new HashSet<>();
+            while (values.size() < secrets) {
+                values.add(randomString(random, 24));
+            }
+            String[] secretValues = values.toArray(new String[0]);
+            StringBuilder sb = new StringBuilder(LOG_SIZE);
+            for (int line = 0; sb.length() < LOG_SIZE; line++) {
+                sb.append("[INFO] Compiling module-").append(line).append(" with ").append(randomString(random, 40));
+                if (line % 50 == 0) {
+                    sb.append(" token=").append(secretValues[random.nextInt(secretValues.length)]);
+                }
+                sb.append('\n');
+            }
+            log = sb.toString().getBytes(StandardCharsets.UTF_8);
+            pattern = SecretPatterns.getAggregateSecretPattern(values);
+            matcher = new SecretsMaskingOutputStream.Matcher(Arrays.asList(SecretsMasker.getEncodedForms(values)));
+        }
+
+        private static String randomString(Random random, int length) {
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+            return sb.toString();
+        }
+    }
+
+    @Benchmark
+    public void regex(LogState state) throws IOException {
+        write(
+                state.log,
+                new SecretPatterns.MaskingOutputStream(OutputStream.nullOutputStream(), () -> state.pattern, "UTF-8"));
+    }
+
+    @Benchmark
+    public void multiLiteral(LogState state) throws IOException {
+        write(state.log, new SecretsMaskingOutputStream(OutputStream.nullOutputStream(), state.matcher));
+    }
+
+    private static void write(byte[] log, OutputStream out) throws IOException {
+        try (out) {
+            for (int off = 0; off < log.length; off += CHUNK_SIZE) {
+                out.write(log, off, Math.min(CHUNK_SIZE, log.length - off));
+            }
+        }
+    }
+}
@@ -9,15 +9,21 @@ import hudson.slaves.Cloud;
 import hudson.slaves.CloudProvisioningListener;
 import hudson.slaves.NodeProvisioner;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jenkins.model.Jenkins;
 import jenkins.util.Timer;
+import org.csanchez.jenkins.plugins.kubernetes.CloudLaunchStatistics;
+import org.csanchez.jenkins.plugins.kubernetes.InProvisioning;
 import org.csanchez.jenkins.plugins.kubernetes.KubernetesCloud;
+import org.csanchez.jenkins.plugins.kubernetes.KubernetesProvisioningLimits;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Implementation of {@link NodeProvisioner.Strategy} which will provision a new node immediately as
@@ -35,6 +41,11 @@ public class NoDelayProvisionerStrategy extends NodeProvisioner.Strategy {
             Boolean.valueOf(System.getProperty("io.jenkins.plugins.kubernetes.disableNoDelayProvisioning"));
     private static final boolean DISABLE_CLOUD_SHUFFLE =
             Boolean.getBoolean(NoDelayProvisionerStrategy.class.getName() + ".disableCloudShuffle");
+    /**
+     * Spreads the excess workload over all the kubernetes clouds able to provision it, instead of the first one.
+     */
+    private static final boolean SPILL_OVER =
+            Boolean.getBoolean(NoDelayProvisionerStrategy.class.getName() + ".spillOver");
 
     @Override
     public NodeProvisioner.StrategyDecision apply(NodeProvisioner.StrategyState strategyState) {
@@ -59,31 +70,31 @@ public class NoDelayProvisionerStrategy extends NodeProvisioner.Strategy {
         if (availableCapacity < currentDemand) {
             List<Cloud> jenkinsClouds = new ArrayList<>(Jenkins.get().clouds);
             if (!DISABLE_CLOUD_SHUFFLE) {
-                Collections.shuffle(jenkinsClouds);
+                // favor clouds with capacity left, that launched agents quickly and reliably lately
+                jenkinsClouds = CloudLaunchStatistics.get()
+                        .weightedOrder(jenkinsClouds, currentDemand - availableCapacity, ThreadLocalRandom.current());
             }
 
             Cloud.CloudState cloudState = new Cloud.CloudState(label, strategyState.getAdditionalPlannedCapacity());
 
-            searchClouds:
-            for (Cloud cloud : jenkinsClouds) {
-                int workloadToProvision = currentDemand - availableCapacity;
-                if (!(cloud instanceof KubernetesCloud)) continue;
-                if (!cloud.canProvision(cloudState)) continue;
-                for (CloudProvisioningListener cl : CloudProvisioningListener.all()) {
-                    if (cl.canProvision(cloud, cloudState, workloadToProvision) != null) {
-                        continue searchClouds;
-                    }
-                }
-
-                Collection<NodeProvisioner.PlannedNode> plannedNodes = cloud.provision(cloudState, workloadToProvision);
-                LOGGER.log(Level.FINE, "Planned {0} new nodes", plannedNodes.size());
-                fireOnStarted(cloud, strategyState.getLabel(), plannedNodes);
-                strategyState.recordPendingLaunches(plannedNodes);
-                availableCapacity += plannedNodes.size();
+            if (SPILL_OVER) {
+                availableCapacity +=
+                        spillOver(strategyState, cloudState, jenkinsClouds, currentDemand - availableCapacity);
                 LOGGER.log(Level.FINE, "After provisioning, available capacity={0}, currentDemand={1}", new Object[] {
                     availableCapacity, currentDemand
                 });
-                break;
+            } else {
+                for (Cloud cloud : jenkinsClouds) {
+                    int workloadToProvision = currentDemand - availableCapacity;
+                    if (!canProvision(cloud, cloudState, workloadToProvision)) continue;
+
+                    availableCapacity += provision(strategyState, cloud, cloudState, workloadToProvision);
+                    LOGGER.log(
+                            Level.FINE,
+                            "After provisioning, available capacity={0}, currentDemand={1}",
+                            new Object[] {availableCapacity, currentDemand});
+                    break;
+                }
             }
         }
         if (availableCapacity > previousCapacity && label != null) {
@@ -99,6 +110,118 @@ public class NoDelayProvisionerStrategy extends NodeProvisioner.Strategy {
         }
     }
 
+    private static boolean canProvision(Cloud cloud, Cloud.CloudState cloudState, int workloadToProvision) {
+        if (!(cloud instanceof KubernetesCloud)) return false;
+        if (!cloud.canProvision(cloudState)) return false;
+        for (CloudProvisioningListener cl : CloudProvisioningListener.all()) {
+            if (cl.canProvision(cloud, cloudState, workloadToProvision) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int provision(
+            NodeProvisioner.StrategyState strategyState,
+            Cloud cloud,
+            Cloud.CloudState cloudState,
+            int workloadToProvision) {
+        Collection<NodeProvisioner.PlannedNode> plannedNodes = cloud.provision(cloudState, workloadToProvision);
+        LOGGER.log(Level.FINE, "Planned {0} new nodes on {1}", new Object[] {plannedNodes.size(), cloud.name});
+        fireOnStarted(cloud, strategyState.getLabel(), plannedNodes);
+        strategyState.recordPendingLaunches(plannedNodes);
+        return plannedNodes.size();
+    }
+
+    /**
+     * Spreads the workload over all the kubernetes clouds that can provision it, in proportion to their remaining
+     * capacity.
+     * @return the number of planned nodes
+     */
+    private static int spillOver(
+            NodeProvisioner.StrategyState strategyState,
+            Cloud.CloudState cloudState,
+            List<Cloud> clouds,
+            int workloadToProvision) {
+        // KubernetesCloud.provision deducts the agents being launched for the label from the workload it is given,
+        // deduct them once here and add them back to each share
+        int inProvisioning = InProvisioning.getAllInProvisioning(cloudState.getLabel()).size();
+        int workload = workloadToProvision - inProvisioning;
+        if (workload <= 0) {
+            return 0;
+        }
+        KubernetesProvisioningLimits limits = KubernetesProvisioningLimits.get();
+        List<Cloud> eligibleClouds = new ArrayList<>();
+        List<Integer> capacities = new ArrayList<>();
+        for (Cloud cloud : clouds) {
+            if (!canProvision(cloud, cloudState, workloadToProvision)) continue;
+            int remainingCapacity = limits.getRemainingCapacity((KubernetesCloud) cloud);
+            if (remainingCapacity > 0) {
+                eligibleClouds.add(cloud);
+                capacities.add(remainingCapacity);
+            }
+        }
+        int[] shares = share(workload, capacities.stream().mapToInt(Integer::intValue).toArray());
+        LOGGER.log(Level.FINE, "Spreading workload {0} over {1} with capacities {2}: {3}", new Object[] {
+            workload, eligibleClouds, capacities, Arrays.toString(shares)
+        });
+        int planned = 0;
+        List<Cloud> cloudsWithCapacityLeft = new ArrayList<>();
+        for (int i = 0; i < shares.length; i++) {
+            if (shares[i] == 0) {
+                cloudsWithCapacityLeft.add(eligibleClouds.get(i));
+                continue;
+            }
+            int plannedOnCloud =
+                    provision(strategyState, eligibleClouds.get(i), cloudState, shares[i] + inProvisioning);
+            planned += plannedOnCloud;
+            if (plannedOnCloud >= shares[i]) {
+                cloudsWithCapacityLeft.add(eligibleClouds.get(i));
+            }
+        }
+        // a cloud may plan less than its share, e.g. when a pod template cap is reached
+        for (Cloud cloud : cloudsWithCapacityLeft) {
+            if (planned >= workload) break;
+            planned += provision(strategyState, cloud, cloudState, workload - planned + inProvisioning);
+        }
+        return planned;
+    }
+
+    /**
+     * Splits a workload in proportion to the given capacities, without going over any of them.
+     * @param workload the workload to split
+     * @param capacities the remaining capacity of each cloud
+     * @return the share of the workload of each cloud
+     */
+    @Restricted(NoExternalUse.class)
+    static int[] share(int workload, int[] capacities) {
+        int[] shares = new int[capacities.length];
+        long[] weights = new long[capacities.length];
+        long totalWeight = 0;
+        for (int i = 0; i < capacities.length; i++) {
+            // computed as long, capacities are Integer.MAX_VALUE for clouds without cap
+            weights[i] = Math.max(capacities[i], 0);
+            totalWeight += weights[i];
+        }
+        if (totalWeight == 0) {
+            return shares;
+        }
+        int toShare = (int) Math.min(workload, totalWeight);
+        int shared = 0;
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = (int) (toShare * weights[i] / totalWeight);
+            shared += shares[i];
+        }
+        // hand out what rounding down left, one at a time
+        for (int i = 0; shared < toShare; i = (i + 1) % shares.length) {
+            if (shares[i] < weights[i]) {
+                shares[i]++;
+                shared++;
+            }
+        }
+        return shares;
+    }
+
     private static void fireOnStarted(
             final Cloud cloud, final Label label, final Collection<NodeProvisioner.PlannedNode> plannedNodes) {
         for (CloudProvisioningListener cl : CloudProvisioningListener.all()) {
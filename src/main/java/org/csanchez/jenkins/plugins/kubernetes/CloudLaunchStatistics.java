@@ -0,0 +1,189 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.slaves.Cloud;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Keeps track of the recent agent launches of each kubernetes cloud, and scores clouds from their launch latency,
+ * failure rate and remaining capacity so that provisioning favors fast and healthy clouds.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class CloudLaunchStatistics {
+    private static final Logger LOGGER = Logger.getLogger(CloudLaunchStatistics.class.getName());
+
+    /**
+     * Number of launches per cloud the statistics are computed from.
+     */
+    private static final int WINDOW =
+            Math.max(1, SystemProperties.getInteger(CloudLaunchStatistics.class.getName() + ".window", 50));
+
+    /**
+     * Percentile of the launch latency used to compare clouds.
+     */
+    private static final double LATENCY_PERCENTILE = 0.9;
+
+    /**
+     * Lowest weight of a cloud with remaining capacity, so that a slow or failing cloud still gets some launches and
+     * its statistics can recover.
+     */
+    private static final double MIN_WEIGHT = 0.05;
+
+    private final ConcurrentMap<String, Launches> launches = new ConcurrentHashMap<>();
+
+    /**
+     * @return the singleton instance
+     */
+    public static CloudLaunchStatistics get() {
+        return ExtensionList.lookupSingleton(CloudLaunchStatistics.class);
+    }
+
+    /**
+     * Records an agent that was launched successfully.
+     * @param cloudName the name of the cloud the agent was launched on
+     * @param latencyMillis the time it took for the agent to connect
+     */
+    public void recordSuccess(@NonNull String cloudName, long latencyMillis) {
+        launches.computeIfAbsent(cloudName, k -> new Launches()).add(Math.max(0, latencyMillis));
+    }
+
+    /**
+     * Records an agent that failed to launch.
+     * @param cloudName the name of the cloud the agent was launched on
+     */
+    public void recordFailure(@NonNull String cloudName) {
+        launches.computeIfAbsent(cloudName, k -> new Launches()).add(Launches.FAILED);
+    }
+
+    /**
+     * @return the launch latency percentile of the cloud in milliseconds, or -1 if no agent was launched recently
+     */
+    public long getLatencyPercentile(@NonNull String cloudName, double percentile) {
+        Launches l = launches.get(cloudName);
+        return l != null ? l.latencyPercentile(percentile) : -1;
+    }
+
+    /**
+     * @return the ratio of recent launches of the cloud that failed
+     */
+    public double getFailureRate(@NonNull String cloudName) {
+        Launches l = launches.get(cloudName);
+        return l != null ? l.failureRate() : 0;
+    }
+
+    /**
+     * Orders clouds randomly, each kubernetes cloud being picked first with a probability proportional to its score.
+     * Clouds that are not kubernetes clouds get a neutral score.
+     * @param clouds the clouds to order
+     * @param workload the workload to provision
+     * @param random the source of randomness
+     * @return the ordered clouds
+     */
+    @NonNull
+    public List<Cloud> weightedOrder(@NonNull List<Cloud> clouds, int workload, @NonNull Random random) {
+        Map<Cloud, Double> weights = getWeights(clouds, workload);
+        Map<Cloud, Double> keys = new HashMap<>();
+        for (Cloud cloud : clouds) {
+            // weighted random sampling without replacement, see Efraimidis and Spirakis
+            double weight = weights.get(cloud);
+            keys.put(cloud, weight > 0 ? Math.pow(random.nextDouble(), 1 / weight) : -1);
+        }
+        List<Cloud> ordered = new ArrayList<>(clouds);
+        ordered.sort(Comparator.comparing(keys::get, Comparator.reverseOrder()));
+        LOGGER.log(Level.FINE, "Cloud weights {0}, ordered as {1}", new Object[] {weights, ordered});
+        return ordered;
+    }
+
+    /**
+     * Scores each cloud from:
+     * <ul>
+     *     <li>the part of the workload it can still take given its container cap,</li>
+     *     <li>its launch latency relative to the fastest cloud,</li>
+     *     <li>its recent launch success rate.</li>
+     * </ul>
+     * Clouds without recent launches are not penalized.
+     */
+    @NonNull
+    Map<Cloud, Double> getWeights(@NonNull List<Cloud> clouds, int workload) {
+        KubernetesProvisioningLimits limits = KubernetesProvisioningLimits.get();
+        Map<Cloud, Long> latencies = new HashMap<>();
+        long fastest = Long.MAX_VALUE;
+        for (Cloud cloud : clouds) {
+            if (cloud instanceof KubernetesCloud) {
+                long latency = getLatencyPercentile(cloud.name, LATENCY_PERCENTILE);
+                latencies.put(cloud, latency);
+                if (latency > 0) {
+                    fastest = Math.min(fastest, latency);
+                }
+            }
+        }
+        Map<Cloud, Double> weights = new HashMap<>();
+        for (Cloud cloud : clouds) {
+            if (!(cloud instanceof KubernetesCloud)) {
+                weights.put(cloud, 1.0);
+                continue;
+            }
+            int remaining = limits.getRemainingCapacity((KubernetesCloud) cloud);
+            if (remaining == 0) {
+                weights.put(cloud, 0.0);
+                continue;
+            }
+            double capacity = workload > 0 ? (double) Math.min(remaining, workload) / workload : 1;
+            long latency = latencies.get(cloud);
+            double speed = latency > 0 ? (double) fastest / latency : 1;
+            double health = 1 - getFailureRate(cloud.name);
+            weights.put(cloud, Math.max(MIN_WEIGHT, capacity * speed * health));
+        }
+        return weights;
+    }
+
+    /**
+     * Outcomes of the last launches of a cloud.
+     */
+    private static final class Launches {
+        private static final long FAILED = -1;
+
+        private final long[] outcomes = new long[WINDOW];
+        private int next;
+        private int size;
+
+        synchronized void add(long outcome) {
+            outcomes[next] = outcome;
+            next = (next + 1) % outcomes.length;
+            size = Math.min(size + 1, outcomes.length);
+        }
+
+        synchronized long latencyPercentile(double percentile) {
+            long[] latencies = Arrays.stream(outcomes, 0, size).filter(outcome -> outcome != FAILED).sorted().toArray();
+            if (latencies.length == 0) {
+                return -1;
+            }
+            int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))];
+        }
+
+        synchronized double failureRate() {
+            if (size == 0) {
+                return 0;
+            }
+            long failures = Arrays.stream(outcomes, 0, size).filter(outcome -> outcome == FAILED).count();
+            return (double) failures / size;
+        }
+    }
+}
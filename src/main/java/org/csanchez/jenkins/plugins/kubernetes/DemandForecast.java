@@ -0,0 +1,420 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.XmlFile;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Label;
+import hudson.model.Queue;
+import hudson.model.TaskListener;
+import hudson.model.queue.QueueListener;
+import hudson.slaves.Cloud;
+import java.io.File;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import jenkins.metrics.api.Metrics;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Forecasts the demand of each label from the items that entered the queue in the same time slot of the previous
+ * weeks, and adds agents shortly before the predicted peaks for the labels that enable it.
+ * <p>Demand is recorded for all the labels of static pod templates, so that the accuracy of the forecast, reported as
+ * metrics, can be checked before enabling pre-provisioning for a label.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class DemandForecast extends AsyncPeriodicWork {
+    private static final Logger LOGGER = Logger.getLogger(DemandForecast.class.getName());
+
+    private static final int WEEK_MINUTES = (int) TimeUnit.DAYS.toMinutes(7);
+
+    private static final int DEFAULT_BUCKET_MINUTES = 15;
+
+    /**
+     * Length in minutes of the time slots demand is recorded in, a divisor of the week of at most an hour.
+     */
+    static final int BUCKET_MINUTES = bucketMinutes(
+            SystemProperties.getInteger(DemandForecast.class.getName() + ".bucketMinutes", DEFAULT_BUCKET_MINUTES));
+
+    static final int BUCKETS = WEEK_MINUTES / BUCKET_MINUTES;
+
+    /**
+     * Time in minutes before the start of a time slot at which agents are added for it.
+     */
+    private static final int LEAD_MINUTES =
+            SystemProperties.getInteger(DemandForecast.class.getName() + ".leadMinutes", 5);
+
+    /**
+     * Time in minutes after the end of a time slot during which the agents added for it are kept idle.
+     */
+    static final int GRACE_MINUTES =
+            SystemProperties.getInteger(DemandForecast.class.getName() + ".graceMinutes", 5);
+
+    /**
+     * Weight of the last week in the forecast.
+     */
+    private static final double SMOOTHING = 0.3;
+
+    /**
+     * Label expressions for which agents are added ahead of the predicted demand, separated by commas.
+     */
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "tests & emergency admin")
+    static Set<String> LABELS =
+            parseLabels(SystemProperties.getString(DemandForecast.class.getName() + ".labels", ""));
+
+    /**
+     * Demand by label expression.
+     */
+    private final ConcurrentMap<String, LabelDemand> demands = new ConcurrentHashMap<>();
+
+    /**
+     * Items that entered the queue since the last run, recorded outside of the queue lock.
+     */
+    private final ConcurrentLinkedQueue<Arrival> arrivals = new ConcurrentLinkedQueue<>();
+
+    public DemandForecast() {
+        super("Kubernetes demand forecast");
+        load();
+    }
+
+    /**
+     * @return the singleton instance
+     */
+    public static DemandForecast get() {
+        return ExtensionList.lookupSingleton(DemandForecast.class);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return TimeUnit.MINUTES.toMillis(1);
+    }
+
+    private static Set<String> parseLabels(String labels) {
+        return Arrays.stream(StringUtils.split(labels, ','))
+                .map(String::trim)
+                .filter(StringUtils::isNotEmpty)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the given length of time slots if it divides the week, the default one otherwise
+     */
+    static int bucketMinutes(int minutes) {
+        int clamped = Math.max(1, Math.min(60, minutes));
+        if (WEEK_MINUTES % clamped != 0) {
+            LOGGER.log(
+                    Level.WARNING,
+                    "Time slots of {0} minutes do not divide a week, using {1} minutes",
+                    new Object[] {minutes, DEFAULT_BUCKET_MINUTES});
+            return DEFAULT_BUCKET_MINUTES;
+        }
+        return clamped;
+    }
+
+    /**
+     * @return the end of the time slot the given time falls in
+     */
+    static ZonedDateTime slotEnd(@NonNull ZonedDateTime time) {
+        return time.truncatedTo(ChronoUnit.MINUTES).plusMinutes(BUCKET_MINUTES - minuteOfWeek(time) % BUCKET_MINUTES);
+    }
+
+    /**
+     * @return the time slot of the week the given time falls in
+     */
+    static int bucket(@NonNull ZonedDateTime time) {
+        return minuteOfWeek(time) / BUCKET_MINUTES;
+    }
+
+    private static int minuteOfWeek(ZonedDateTime time) {
+        return (time.getDayOfWeek().getValue() - 1) * 24 * 60 + time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Records an item entering the queue.
+     * @param label the label of the item
+     */
+    void record(@NonNull Label label, @NonNull ZonedDateTime time) {
+        demands.computeIfAbsent(label.getExpression(), k -> new LabelDemand()).record(label.getExpression(), time);
+    }
+
+    /**
+     * @return the number of items forecast to enter the queue for the label in the time slot of the given time, or
+     * -1 if there is no history for that slot
+     */
+    double getForecast(@NonNull String labelExpression, @NonNull ZonedDateTime time) {
+        LabelDemand demand = demands.get(labelExpression);
+        return demand != null ? demand.getForecast(bucket(time)) : -1;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        run(ZonedDateTime.now());
+    }
+
+    void run(@NonNull ZonedDateTime now) {
+        recordArrivals();
+        if (roll(now)) {
+            save();
+        }
+        ZonedDateTime upcoming = now.plusMinutes(LEAD_MINUTES);
+        int upcomingBucket = bucket(upcoming);
+        if (upcomingBucket == bucket(now)) {
+            return;
+        }
+        for (String labelExpression : LABELS) {
+            LabelDemand demand = demands.get(labelExpression);
+            if (demand != null && demand.markPreProvisioned(upcomingBucket)) {
+                long holdUntil = slotEnd(upcoming).plusMinutes(GRACE_MINUTES).toInstant().toEpochMilli();
+                preProvision(Jenkins.get().getLabel(labelExpression), demand.getForecast(upcomingBucket), holdUntil);
+            }
+        }
+    }
+
+    /**
+     * Records the items that entered the queue for the labels of static kubernetes pod templates.
+     */
+    void recordArrivals() {
+        Arrival arrival;
+        while ((arrival = arrivals.poll()) != null) {
+            Label label = arrival.label;
+            for (KubernetesCloud cloud : Jenkins.get().clouds.getAll(KubernetesCloud.class)) {
+                // labels of pod templates defined in pipelines are unique to a build, there is nothing to forecast
+                if (cloud.getTemplates().stream().anyMatch(t -> label.matches(t.getLabelSet()))) {
+                    record(label, arrival.time);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the time slots of all labels before the given time.
+     * @return whether a time slot was closed
+     */
+    boolean roll(@NonNull ZonedDateTime now) {
+        boolean rolled = false;
+        for (Map.Entry<String, LabelDemand> entry : demands.entrySet()) {
+            rolled |= entry.getValue().roll(entry.getKey(), bucket(now));
+        }
+        return rolled;
+    }
+
+    /**
+     * Adds agents for the forecast demand of a label, kept idle until the given time.
+     */
+    private void preProvision(@CheckForNull Label label, double forecast, long holdUntil) {
+        if (label == null || forecast < 0) {
+            return;
+        }
+        int available = label.getIdleExecutors() + InProvisioning.getAllInProvisioning(label).size();
+        int missing = (int) Math.round(forecast) - available;
+        LOGGER.log(
+                Level.FINE, "Forecast for label {0}: {1}, available: {2}", new Object[] {label, forecast, available});
+        Cloud.CloudState cloudState = new Cloud.CloudState(label, 0);
+        for (KubernetesCloud cloud : Jenkins.get().clouds.getAll(KubernetesCloud.class)) {
+            if (missing <= 0) {
+                return;
+            }
+            if (!cloud.canProvision(cloudState)) {
+                continue;
+            }
+            for (PodTemplate template : cloud.getTemplatesFor(label)) {
+                int added = WarmPool.addAgents(
+                        cloud,
+                        template,
+                        Math.min(missing, template.getInstanceCap()),
+                        () -> new ForecastRetentionStrategy(cloud.getRetentionTimeout(), holdUntil));
+                LOGGER.log(Level.FINE, "Added {0} agents for label {1} ahead of forecast demand", new Object[] {
+                    added, label
+                });
+                Metrics.metricRegistry().counter(MetricNames.FORECAST_PROVISIONED).inc(added);
+                missing -= added;
+                if (missing <= 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private XmlFile getConfigFile() {
+        return new XmlFile(
+                Jenkins.XSTREAM, new File(Jenkins.get().getRootDir(), DemandForecast.class.getName() + ".xml"));
+    }
+
+    private void load() {
+        XmlFile file = getConfigFile();
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            Object history = file.read();
+            if (history instanceof Map) {
+                ((Map<?, ?>) history).forEach((label, averages) -> {
+                    if (label instanceof String
+                            && averages instanceof double[]
+                            && ((double[]) averages).length == BUCKETS) {
+                        demands.put((String) label, new LabelDemand((double[]) averages));
+                    }
+                });
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Failed to load demand history from " + file);
+        }
+    }
+
+    private synchronized void save() {
+        Map<String, double[]> history = new HashMap<>();
+        demands.forEach((label, demand) -> history.put(label, demand.getAverages()));
+        XmlFile file = getConfigFile();
+        try {
+            file.write(history);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Failed to save demand history to " + file);
+        }
+    }
+
+    /**
+     * Demand of a label over a week.
+     */
+    private static final class LabelDemand {
+        /**
+         * Exponential moving average of the number of items that entered the queue in each time slot of the week,
+         * NaN for slots without history.
+         */
+        private final double[] averages;
+
+        private int bucket = -1;
+        private int count;
+        private int preProvisionedBucket = -1;
+
+        LabelDemand() {
+            this(new double[BUCKETS]);
+            Arrays.fill(averages, Double.NaN);
+        }
+
+        LabelDemand(double[] averages) {
+            this.averages = averages;
+        }
+
+        synchronized void record(String label, ZonedDateTime time) {
+            int current = bucket(time);
+            // items recorded after their time slot was closed count in the open one
+            if (!isBehind(current)) {
+                roll(label, current);
+            }
+            count++;
+        }
+
+        /**
+         * @return whether the given time slot is shortly before the open one
+         */
+        private boolean isBehind(int current) {
+            int backwards = (bucket - current + BUCKETS) % BUCKETS;
+            return bucket != -1 && backwards > 0 && backwards <= TimeUnit.HOURS.toMinutes(2) / BUCKET_MINUTES;
+        }
+
+        /**
+         * Closes the time slots before the given one.
+         * @return whether a time slot was closed
+         */
+        synchronized boolean roll(String label, int current) {
+            if (bucket == -1) {
+                bucket = current;
+                return false;
+            }
+            if (isBehind(current)) {
+                // the clock went back, e.g. at the end of daylight saving time
+                bucket = current;
+                return false;
+            }
+            boolean rolled = false;
+            // slots without any item in between get no demand
+            while (bucket != current) {
+                close(label, bucket, count);
+                count = 0;
+                bucket = (bucket + 1) % BUCKETS;
+                rolled = true;
+            }
+            return rolled;
+        }
+
+        private void close(String label, int closed, int actual) {
+            double forecast = averages[closed];
+            if (Double.isNaN(forecast)) {
+                averages[closed] = actual;
+                return;
+            }
+            Metrics.metricRegistry()
+                    .histogram(MetricNames.metricNameForForecast(label, "error"))
+                    .update(Math.round(Math.abs(forecast - actual)));
+            Metrics.metricRegistry()
+                    .counter(MetricNames.metricNameForForecast(label, "predicted"))
+                    .inc(Math.round(forecast));
+            Metrics.metricRegistry().counter(MetricNames.metricNameForForecast(label, "actual")).inc(actual);
+            averages[closed] = SMOOTHING * actual + (1 - SMOOTHING) * forecast;
+        }
+
+        synchronized double getForecast(int bucket) {
+            double forecast = averages[bucket];
+            return Double.isNaN(forecast) ? -1 : forecast;
+        }
+
+        /**
+         * @return whether agents were not added yet for the given time slot
+         */
+        synchronized boolean markPreProvisioned(int bucket) {
+            if (preProvisionedBucket == bucket) {
+                return false;
+            }
+            preProvisionedBucket = bucket;
+            return true;
+        }
+
+        synchronized double[] getAverages() {
+            return averages.clone();
+        }
+    }
+
+    private static final class Arrival {
+        private final Label label;
+        private final ZonedDateTime time;
+
+        Arrival(Label label, ZonedDateTime time) {
+            this.label = label;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Collects the items entering the queue, the queue lock is held so they are only recorded on the next run.
+     */
+    @Extension
+    public static class QueueListenerImpl extends QueueListener {
+        @Override
+        public void onEnterBuildable(Queue.BuildableItem item) {
+            Label label = item.getAssignedLabel();
+            if (label != null) {
+                DemandForecast.get().arrivals.add(new Arrival(label, ZonedDateTime.now()));
+            }
+        }
+    }
+}
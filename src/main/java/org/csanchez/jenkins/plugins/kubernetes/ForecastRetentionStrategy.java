@@ -0,0 +1,40 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.slaves.AbstractCloudComputer;
+import org.jenkinsci.plugins.durabletask.executors.OnceRetentionStrategy;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Retention strategy of the agents added by {@link DemandForecast} ahead of the predicted demand.
+ * <p>Idle agents are kept until the end of the time slot they were added for, then each agent is terminated once it
+ * has run a task, or once it has been idle for the retention timeout, like any other agent.
+ */
+@Restricted(NoExternalUse.class)
+public class ForecastRetentionStrategy extends OnceRetentionStrategy {
+
+    private final long holdUntil;
+
+    /**
+     * @param idleMinutes the retention timeout once the time slot is over
+     * @param holdUntil the time in milliseconds until which idle agents are kept
+     */
+    public ForecastRetentionStrategy(int idleMinutes, long holdUntil) {
+        super(idleMinutes);
+        this.holdUntil = holdUntil;
+    }
+
+    public long getHoldUntil() {
+        return holdUntil;
+    }
+
+    @Override
+    public long check(@NonNull AbstractCloudComputer c) {
+        if (c.isIdle() && c.isAcceptingTasks() && System.currentTimeMillis() < holdUntil) {
+            // waiting for the forecast demand
+            return 1;
+        }
+        return super.check(c);
+    }
+}
@@ -19,6 +19,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -148,18 +149,26 @@ public class GarbageCollection extends AbstractDescribableImpl<GarbageCollection
                 Optional.ofNullable(cloud.getGarbageCollection()).ifPresent(gc -> {
                     try {
                         var client = cloud.connect();
+                        var throttle = cloud.getApiThrottle();
                         var namespaces = new HashSet<String>();
                         namespaces.add(client.getNamespace());
                         namespaces.addAll(gc.getNamespaceSet());
+                        var controllerLabel = sanitizeLabel(cloud.getJenkinsUrlOrNull());
                         for (var ns : namespaces) {
-                            client
-                                    .pods()
-                                    .inNamespace(ns)
-                                    // Only look at pods created by this controller
-                                    .withLabel(LABEL_KUBERNETES_CONTROLLER, sanitizeLabel(cloud.getJenkinsUrlOrNull()))
-                                    .list()
-                                    .getItems()
-                                    .stream()
+                            var podCache = cloud.getPodCache(ns);
+                            List<Pod> pods;
+                            if (podCache != null && podCache.hasSynced() && controllerLabel != null) {
+                                // the informer of the namespace already has the pods, no need to list them again
+                                pods = podCache.getByController(controllerLabel);
+                            } else {
+                                pods = throttle.call(KubernetesApiThrottle.Priority.LOW, () -> client.pods()
+                                                .inNamespace(ns)
+                                                // Only look at pods created by this controller
+                                                .withLabel(LABEL_KUBERNETES_CONTROLLER, controllerLabel)
+                                                .list())
+                                        .getItems();
+                            }
+                            pods.stream()
                                     .filter(pod -> {
                                         var lastRefresh = pod.getMetadata()
                                                 .getAnnotations()
@@ -193,9 +202,12 @@ public class GarbageCollection extends AbstractDescribableImpl<GarbageCollection
                                     })
                                     .forEach(pod -> {
                                         LOGGER.log(Level.INFO, () -> "Deleting orphan pod " + getQualifiedName(pod));
-                                        client.resource(pod).delete();
+                                        throttle.run(KubernetesApiThrottle.Priority.LOW, () -> client.resource(pod)
+                                                .delete());
                                     });
                         }
+                    } catch (KubernetesApiThrottle.Rejected e) {
+                        LOGGER.log(Level.FINE, "Skipping garbage collection: {0}", e.getMessage());
                     } catch (KubernetesClientException e) {
                         LOGGER.log(Level.WARNING, "Unexpected error while calling Kubernetes API", e);
                     } catch (KubernetesAuthException e) {
@@ -0,0 +1,229 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.metrics.api.Metrics;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Throttles the Kubernetes API calls made by the plugin for a {@link KubernetesCloud}.
+ * <p>Calls take tokens from a bucket refilled at an adaptive rate: the rate is halved when the API server answers
+ * with 429 or 5xx, and slowly recovers on success. Lower priority calls may only use the upper part of the bucket,
+ * so that agent launches and terminations keep going when the API server is slow.
+ * <p>A circuit breaker opens after repeated 429 or 5xx responses. While open, {@link Priority#LOW} calls are
+ * rejected without reaching the API server.
+ */
+@Restricted(NoExternalUse.class)
+public class KubernetesApiThrottle {
+
+    private static final Logger LOGGER = Logger.getLogger(KubernetesApiThrottle.class.getName());
+
+    /**
+     * Maximum number of calls per second, 0 disables throttling.
+     */
+    private static final double RATE =
+            parseRate(SystemProperties.getString(KubernetesApiThrottle.class.getName() + ".rate"), 50);
+
+    private static final int BURST = SystemProperties.getInteger(KubernetesApiThrottle.class.getName() + ".burst", 100);
+
+    private static final int BREAKER_THRESHOLD =
+            SystemProperties.getInteger(KubernetesApiThrottle.class.getName() + ".breakerThreshold", 5);
+
+    private static final long BREAKER_COOLDOWN_MILLIS =
+            SystemProperties.getLong(KubernetesApiThrottle.class.getName() + ".breakerCooldownMillis", 30000L);
+
+    /**
+     * Priority of a Kubernetes API call.
+     */
+    public enum Priority {
+        /** Agent launch and termination. */
+        HIGH(0.0),
+        /** Reaper, user interface. */
+        NORMAL(0.2),
+        /** Garbage collection, TTL annotations. Rejected while the circuit breaker is open. */
+        LOW(0.5);
+
+        /**
+         * Fraction of the bucket that calls of this priority cannot use.
+         */
+        private final double reserve;
+
+        Priority(double reserve) {
+            this.reserve = reserve;
+        }
+    }
+
+    private final double maxRate;
+    private final double capacity;
+    private final int breakerThreshold;
+    private final long breakerCooldownNanos;
+
+    // guarded by this
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private int consecutiveFailures;
+    private long breakerOpenUntilNanos;
+
+    public KubernetesApiThrottle() {
+        this(RATE, BURST, BREAKER_THRESHOLD, BREAKER_COOLDOWN_MILLIS);
+    }
+
+    KubernetesApiThrottle(double maxRate, int burst, int breakerThreshold, long breakerCooldownMillis) {
+        this.maxRate = maxRate;
+        this.capacity = Math.max(1, burst);
+        this.breakerThreshold = Math.max(1, breakerThreshold);
+        this.breakerCooldownNanos = TimeUnit.MILLISECONDS.toNanos(breakerCooldownMillis);
+        this.rate = maxRate;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Performs an API call once the throttle allows it.
+     * @param priority the priority of the call
+     * @param call the API call
+     * @return the result of the call
+     * @throws Rejected if the call was shed because the circuit breaker is open
+     * @throws KubernetesClientException with an {@link InterruptedIOException} cause if the thread was interrupted
+     *     while waiting, the call is not sent to the API server then
+     */
+    public <T> T call(@NonNull Priority priority, @NonNull Supplier<T> call) {
+        acquire(priority);
+        try {
+            T result = call.get();
+            onSuccess();
+            return result;
+        } catch (KubernetesClientException e) {
+            if (!(e instanceof Rejected)) {
+                onFailure(e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Performs an API call without result once the throttle allows it.
+     * @see #call(Priority, Supplier)
+     */
+    public void run(@NonNull Priority priority, @NonNull Runnable call) {
+        call(priority, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return whether the circuit breaker is currently open
+     */
+    public synchronized boolean isOpen() {
+        return breakerOpenUntilNanos - System.nanoTime() > 0;
+    }
+
+    /**
+     * @return the current rate, in calls per second
+     */
+    synchronized double getRate() {
+        return rate;
+    }
+
+    private void acquire(Priority priority) {
+        if (maxRate <= 0) {
+            return;
+        }
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                refill(now);
+                if (priority == Priority.LOW && breakerOpenUntilNanos - now > 0) {
+                    Metrics.metricRegistry().counter(MetricNames.API_CALLS_SHED).inc();
+                    throw new Rejected("Kubernetes API circuit breaker is open, skipping low priority call");
+                }
+                double floor = capacity * priority.reserve;
+                if (tokens - 1 >= floor) {
+                    tokens--;
+                    return;
+                }
+                waitNanos = (long) ((floor + 1 - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException x = new InterruptedIOException("Interrupted while waiting to call the API");
+                x.initCause(e);
+                throw new KubernetesClientException("Interrupted while waiting to call the Kubernetes API", x);
+            }
+        }
+    }
+
+    static double parseRate(@CheckForNull String value, double defaultRate) {
+        if (value == null) {
+            return defaultRate;
+        }
+        try {
+            double rate = Double.parseDouble(value.trim());
+            if (!Double.isNaN(rate) && !Double.isInfinite(rate)) {
+                return rate;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        LOGGER.log(Level.WARNING, "Invalid Kubernetes API rate {0}, using {1}", new Object[] {value, defaultRate});
+        return defaultRate;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * rate / TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (rate < maxRate) {
+            // additive increase, the full rate is recovered after 20 successful calls
+            rate = Math.min(maxRate, rate + maxRate / 20);
+        }
+    }
+
+    private void onFailure(KubernetesClientException e) {
+        int code = e.getCode();
+        if (code != 429 && (code < 500 || code >= 600)) {
+            return;
+        }
+        Metrics.metricRegistry().counter(MetricNames.API_CALLS_THROTTLED).inc();
+        synchronized (this) {
+            if (maxRate > 0) {
+                // multiplicative decrease, keep at least one call per second
+                rate = Math.max(Math.min(1, maxRate), rate / 2);
+            }
+            if (++consecutiveFailures >= breakerThreshold && !isOpen()) {
+                breakerOpenUntilNanos = System.nanoTime() + breakerCooldownNanos;
+                consecutiveFailures = 0;
+                Metrics.metricRegistry().counter(MetricNames.API_BREAKER_OPENED).inc();
+                LOGGER.log(
+                        Level.WARNING,
+                        "Kubernetes API returned {0} repeatedly, skipping low priority calls for {1}ms",
+                        new Object[] {code, TimeUnit.NANOSECONDS.toMillis(breakerCooldownNanos)});
+            }
+        }
+    }
+
+    /**
+     * Thrown when a call is not sent to the API server.
+     */
+    public static class Rejected extends KubernetesClientException {
+        public Rejected(String message) {
+            super(message, 429, null);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import hudson.model.DescriptorVisibilityFilter;
 import hudson.model.Item;
 import hudson.model.ItemGroup;
 import hudson.model.Label;
+import hudson.model.Node;
 import hudson.model.Saveable;
 import hudson.security.ACL;
 import hudson.security.AccessControlled;
@@ -57,13 +58,13 @@ import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -80,6 +81,8 @@ import org.apache.commons.lang.StringUtils;
 import org.csanchez.jenkins.plugins.kubernetes.pipeline.PodTemplateMap;
 import org.csanchez.jenkins.plugins.kubernetes.pod.retention.Default;
 import org.csanchez.jenkins.plugins.kubernetes.pod.retention.PodRetention;
+import org.csanchez.jenkins.plugins.kubernetes.pod.retention.Reaper;
+import org.csanchez.jenkins.plugins.kubernetes.watch.PodCache;
 import org.csanchez.jenkins.plugins.kubernetes.watch.PodStatusEventHandler;
 import org.jenkinsci.plugins.kubernetes.auth.KubernetesAuth;
 import org.jenkinsci.plugins.kubernetes.auth.KubernetesAuthException;
@@ -178,10 +181,30 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
             new DescribableList<>(Saveable.NOOP);
 
     /**
-     * namespace -> informer
+     * namespace -> informer backed pod cache
      * Use to watch pod events per namespace.
      */
-    private transient volatile Map<String, SharedIndexInformer<Pod>> informers = new ConcurrentHashMap<>();
+    private transient volatile Map<String, PodCache> informers = new ConcurrentHashMap<>();
+
+    /**
+     * Coordinates pod creations of this cloud.
+     */
+    private transient volatile PodCreationBatcher podCreationBatcher;
+
+    /**
+     * Unwrapped pod templates, for {@link #getUnwrappedTemplate(PodTemplate)}.
+     */
+    private transient volatile UnwrappedTemplateCache unwrappedTemplateCache;
+
+    /**
+     * Pod templates by label, for {@link #getTemplatesFor(Label)}.
+     */
+    private transient volatile PodTemplateLabelIndex templateLabelIndex;
+
+    /**
+     * Throttles Kubernetes API calls of this cloud.
+     */
+    private transient volatile KubernetesApiThrottle apiThrottle;
 
     @DataBoundConstructor
     public KubernetesCloud(String name) {
@@ -284,6 +307,7 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
     @DataBoundSetter
     public void setTemplates(@NonNull List<PodTemplate> templates) {
         this.templates = new ArrayList<>(templates);
+        invalidateUnwrappedTemplates();
     }
 
     public String getServerUrl() {
@@ -713,6 +737,7 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
                     toBeProvisioned--;
                 }
                 if (!plannedNodes.isEmpty()) {
+                    getPodCreationBatcher().newBatch(getPlannedNodeNames(plannedNodes));
                     // Return early when a matching template was found and nodes were planned
                     LOGGER.log(Level.FINEST, "Planned {0} Kubernetes agents with template \"{1}\"", new Object[] {
                         plannedNodes.size(), podTemplate.getName()
@@ -749,6 +774,64 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
         return Collections.emptyList();
     }
 
+    /**
+     * @return the names of the planned nodes whose agent is already known
+     */
+    private static List<String> getPlannedNodeNames(List<NodeProvisioner.PlannedNode> plannedNodes) {
+        List<String> names = new ArrayList<>();
+        for (NodeProvisioner.PlannedNode plannedNode : plannedNodes) {
+            if (plannedNode.future.isDone()) {
+                try {
+                    Node node = plannedNode.future.get();
+                    if (node != null) {
+                        names.add(node.getNodeName());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // the agent could not be built and will not be launched
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return the object coordinating pod creations of this cloud
+     */
+    @Restricted(NoExternalUse.class)
+    @NonNull
+    public PodCreationBatcher getPodCreationBatcher() {
+        PodCreationBatcher b = podCreationBatcher;
+        if (b == null) {
+            synchronized (this) {
+                b = podCreationBatcher;
+                if (b == null) {
+                    podCreationBatcher = b = new PodCreationBatcher();
+                }
+            }
+        }
+        return b;
+    }
+
+    /**
+     * @return the throttle for Kubernetes API calls of this cloud
+     */
+    @Restricted(NoExternalUse.class)
+    @NonNull
+    public KubernetesApiThrottle getApiThrottle() {
+        KubernetesApiThrottle t = apiThrottle;
+        if (t == null) {
+            synchronized (this) {
+                t = apiThrottle;
+                if (t == null) {
+                    apiThrottle = t = new KubernetesApiThrottle();
+                }
+            }
+        }
+        return t;
+    }
+
     /**
      * Checks if URL is using HTTPS, required in FIPS mode
      * Continues if URL is secure or not in FIPS mode, throws an {@link IllegalArgumentException} if not.
@@ -865,7 +948,28 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
      * @return the unwrapped pod template
      */
     public PodTemplate getUnwrappedTemplate(PodTemplate podTemplate) {
-        return PodTemplateUtils.unwrap(podTemplate, getDefaultsProviderTemplate(), getAllTemplates());
+        return getUnwrappedTemplateCache().unwrap(podTemplate, getDefaultsProviderTemplate(), getAllTemplates());
+    }
+
+    private UnwrappedTemplateCache getUnwrappedTemplateCache() {
+        UnwrappedTemplateCache cache = unwrappedTemplateCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = unwrappedTemplateCache;
+                if (cache == null) {
+                    cache = new UnwrappedTemplateCache();
+                    unwrappedTemplateCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    private void invalidateUnwrappedTemplates() {
+        UnwrappedTemplateCache cache = unwrappedTemplateCache;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
     }
 
     /**
@@ -885,7 +989,21 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
      * @return list of matching templates
      */
     public List<PodTemplate> getTemplatesFor(@CheckForNull Label label) {
-        return PodTemplateFilter.applyAll(this, getAllTemplates(), label);
+        return PodTemplateFilter.applyAll(this, getTemplateLabelIndex().getCandidates(label), label);
+    }
+
+    /**
+     * @return the label index of all pod templates, rebuilt if templates changed since it was last built
+     */
+    @NonNull
+    private PodTemplateLabelIndex getTemplateLabelIndex() {
+        List<PodTemplate> allTemplates = getAllTemplates();
+        PodTemplateLabelIndex index = templateLabelIndex;
+        if (index == null || !index.isFor(allTemplates)) {
+            index = new PodTemplateLabelIndex(allTemplates);
+            templateLabelIndex = index;
+        }
+        return index;
     }
 
     /**
@@ -896,6 +1014,7 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
     public void addTemplate(PodTemplate t) {
         this.checkManagePermission();
         this.templates.add(t);
+        invalidateUnwrappedTemplates();
         // t.parent = this;
     }
 
@@ -908,6 +1027,7 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
     public void removeTemplate(PodTemplate t) {
         this.checkManagePermission();
         this.templates.remove(t);
+        invalidateUnwrappedTemplates();
     }
 
     @Override
@@ -929,6 +1049,10 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
      */
     public void removeDynamicTemplate(PodTemplate t) {
         PodTemplateMap.get().removeTemplate(this, t);
+        UnwrappedTemplateCache cache = unwrappedTemplateCache;
+        if (cache != null) {
+            cache.invalidate(t);
+        }
     }
 
     @Override
@@ -1412,6 +1536,17 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
     }
 
     public void registerPodInformer(KubernetesSlave node) {
+        getOrCreatePodCache(node.getNamespace());
+    }
+
+    /**
+     * Get the pod cache of a namespace, registering its informer if needed. There is a single informer per cloud
+     * and namespace, shared by agent launches, pod event logging, the {@link Reaper} and garbage collection.
+     * @param namespace the namespace
+     * @return the pod cache, or null if the cloud cannot be connected to
+     */
+    @CheckForNull
+    public PodCache getOrCreatePodCache(@NonNull String namespace) {
         // even having readResolve initializing informers is not enough, there are some special cases where XStream will
         // not call it, so let us make sure it is initialized before using
         if (informers == null) {
@@ -1421,7 +1556,8 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
                 }
             }
         }
-        informers.computeIfAbsent(node.getNamespace(), (n) -> {
+        boolean[] created = new boolean[1];
+        PodCache result = informers.computeIfAbsent(namespace, (n) -> {
             KubernetesClient client;
             try {
                 client = connect();
@@ -1432,20 +1568,46 @@ public class KubernetesCloud extends Cloud implements PodTemplateGroup {
                         e);
                 return null;
             }
-            Map<String, String> labelsFilter = new HashMap<>(getPodLabelsMap());
+            // all the pods of this controller, so that the cache can be used for garbage collection too
+            Map<String, String> labelsFilter;
             String jenkinsUrlLabel = sanitizeLabel(getJenkinsUrlOrNull());
             if (jenkinsUrlLabel != null) {
-                labelsFilter.put(PodTemplateBuilder.LABEL_KUBERNETES_CONTROLLER, jenkinsUrlLabel);
+                labelsFilter = Map.of(PodTemplateBuilder.LABEL_KUBERNETES_CONTROLLER, jenkinsUrlLabel);
+            } else {
+                labelsFilter = getPodLabelsMap();
             }
             SharedIndexInformer<Pod> inform = client.pods()
-                    .inNamespace(node.getNamespace())
+                    .inNamespace(n)
                     .withLabels(labelsFilter)
-                    .inform(new PodStatusEventHandler(), TimeUnit.SECONDS.toMillis(30));
+                    .runnableInformer(TimeUnit.SECONDS.toMillis(30));
+            inform.addEventHandler(new PodStatusEventHandler());
+            PodCache podCache = new PodCache(n);
+            podCache.attach(inform);
+            inform.start();
+            created[0] = true;
             LOGGER.info(String.format(
                     "Registered informer to watch pod events on namespace [%s], with labels [%s] on cloud [%s]",
-                    namespace, labelsFilter, name));
-            return inform;
+                    n, labelsFilter, name));
+            return podCache;
         });
+        if (created[0]) {
+            Reaper.getInstance().podCacheRegistered(this);
+        }
+        return result;
+    }
+
+    /**
+     * Get the pod cache registered for the given namespace through {@link #getOrCreatePodCache(String)}.
+     * @param namespace the namespace
+     * @return the pod cache, or null if no informer is registered for this namespace
+     */
+    @CheckForNull
+    public PodCache getPodCache(@CheckForNull String namespace) {
+        Map<String, PodCache> m = informers;
+        if (m == null || namespace == null) {
+            return null;
+        }
+        return m.get(namespace);
     }
 
     @Extension
@@ -1,5 +1,6 @@
 package org.csanchez.jenkins.plugins.kubernetes;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.model.Computer;
 import hudson.model.Executor;
@@ -30,6 +31,7 @@ import java.util.logging.Logger;
 import jenkins.model.Jenkins;
 import org.acegisecurity.Authentication;
 import org.apache.commons.lang.StringUtils;
+import org.csanchez.jenkins.plugins.kubernetes.watch.PodCache;
 import org.jenkinsci.plugins.kubernetes.auth.KubernetesAuthException;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest2;
@@ -90,7 +92,7 @@ public class KubernetesComputer extends AbstractCloudComputer<KubernetesSlave> {
         KubernetesClient client = cloud.connect();
 
         String namespace = StringUtils.defaultIfBlank(slave.getNamespace(), client.getNamespace());
-        Pod pod = client.pods().inNamespace(namespace).withName(getName()).get();
+        Pod pod = getPod(cloud, client, namespace);
 
         if (pod == null) {
             return Collections.emptyList();
@@ -113,7 +115,8 @@ public class KubernetesComputer extends AbstractCloudComputer<KubernetesSlave> {
 
             String namespace = StringUtils.defaultIfBlank(slave.getNamespace(), client.getNamespace());
 
-            Pod pod = client.pods().inNamespace(namespace).withName(getName()).get();
+            KubernetesApiThrottle throttle = cloud.getApiThrottle();
+            Pod pod = getPod(cloud, client, namespace);
             if (pod != null) {
                 ObjectMeta podMeta = pod.getMetadata();
                 String podNamespace = podMeta.getNamespace();
@@ -123,11 +126,11 @@ public class KubernetesComputer extends AbstractCloudComputer<KubernetesSlave> {
                 fields.put("involvedObject.name", podMeta.getName());
                 fields.put("involvedObject.namespace", podNamespace);
 
-                EventList eventList = client.v1()
+                EventList eventList = throttle.call(KubernetesApiThrottle.Priority.NORMAL, () -> client.v1()
                         .events()
                         .inNamespace(podNamespace)
                         .withFields(fields)
-                        .list();
+                        .list());
                 if (eventList != null) {
                     return eventList.getItems();
                 }
@@ -137,6 +140,21 @@ public class KubernetesComputer extends AbstractCloudComputer<KubernetesSlave> {
         return Collections.emptyList();
     }
 
+    /**
+     * Get the pod of this computer, from the pod cache of its namespace when it is synced.
+     */
+    @CheckForNull
+    private Pod getPod(KubernetesCloud cloud, KubernetesClient client, String namespace) {
+        PodCache podCache = cloud.getPodCache(namespace);
+        if (podCache != null && podCache.hasSynced()) {
+            return podCache.get(getName());
+        }
+        return cloud.getApiThrottle()
+                .call(
+                        KubernetesApiThrottle.Priority.NORMAL,
+                        () -> client.pods().inNamespace(namespace).withName(getName()).get());
+    }
+
     public void doContainerLog(@QueryParameter String containerId, StaplerRequest2 req, StaplerResponse2 rsp)
             throws KubernetesAuthException, IOException {
         Jenkins.get().checkPermission(Computer.EXTENDED_READ);
@@ -0,0 +1,211 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import hudson.security.ACL;
+import hudson.slaves.ComputerListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.metrics.api.Metrics;
+import jenkins.security.ImpersonatingExecutorService;
+import jenkins.util.SystemProperties;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Runs the stages of an asynchronous {@link KubernetesLauncher} launch on a bounded executor.
+ * <p>Blocking stages (API calls) are submitted to the executor, while waiting stages are completed by pod and
+ * computer events, so that no thread polls while a pod is scheduled or an agent connects. The computer thread calling
+ * the launcher returns once the stages are submitted, so a burst of launches holds at most the threads of this
+ * executor, and only while API calls are made.
+ * <p>Enabled with the {@code org.csanchez.jenkins.plugins.kubernetes.KubernetesLaunchPipeline.enabled} system
+ * property. The number of threads is set by {@code .poolSize}, or virtual threads are used when {@code
+ * .virtualThreads} is set and the JVM supports them.
+ */
+@Restricted(NoExternalUse.class)
+public final class KubernetesLaunchPipeline {
+
+    private static final Logger LOGGER = Logger.getLogger(KubernetesLaunchPipeline.class.getName());
+
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "tests & emergency admin")
+    static boolean ENABLED =
+            SystemProperties.getBoolean(KubernetesLaunchPipeline.class.getName() + ".enabled", false);
+
+    static final int POOL_SIZE =
+            SystemProperties.getInteger(KubernetesLaunchPipeline.class.getName() + ".poolSize", 16);
+
+    private static final boolean VIRTUAL_THREADS =
+            SystemProperties.getBoolean(KubernetesLaunchPipeline.class.getName() + ".virtualThreads", false);
+
+    /**
+     * Stages of an agent launch.
+     */
+    public enum Stage {
+        CREATE,
+        VOLUMES,
+        POD_RUNNING,
+        AGENT_ONLINE;
+
+        String getMetricName() {
+            return MetricNames.metricNameForLaunchStage(name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private static final class Holder {
+        private static final KubernetesLaunchPipeline INSTANCE = new KubernetesLaunchPipeline();
+    }
+
+    private final ExecutorService executor = new ImpersonatingExecutorService(createExecutor(), ACL.SYSTEM2);
+
+    /**
+     * node name -> callbacks to run when the computer comes online
+     */
+    private final Map<String, Set<Runnable>> onlineCallbacks = new ConcurrentHashMap<>();
+
+    private KubernetesLaunchPipeline() {}
+
+    static KubernetesLaunchPipeline get() {
+        return Holder.INSTANCE;
+    }
+
+    private static ExecutorService createExecutor() {
+        if (VIRTUAL_THREADS) {
+            try {
+                return (ExecutorService)
+                        Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.log(Level.WARNING, "Virtual threads are not supported by this JVM, using a thread pool", e);
+            }
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                POOL_SIZE,
+                POOL_SIZE,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), KubernetesLaunchPipeline.class.getSimpleName()));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Runs a blocking stage on the launch executor.
+     */
+    <T> CompletableFuture<T> stage(@NonNull Stage stage, @NonNull Callable<T> callable) {
+        return track(
+                stage,
+                CompletableFuture.supplyAsync(
+                        () -> {
+                            try {
+                                return callable.call();
+                            } catch (RuntimeException e) {
+                                throw e;
+                            } catch (Exception e) {
+                                throw new CompletionException(e);
+                            }
+                        },
+                        executor));
+    }
+
+    /**
+     * Completes once the given condition is true.
+     * The condition is evaluated on the launch executor, initially and each time the subscribed events fire.
+     * @param stage the stage the condition belongs to
+     * @param subscribe registers the given trigger on some event source and returns a handle to unregister it
+     * @param condition the condition to wait for, may throw to fail the stage
+     * @param timeoutSeconds the stage fails with a {@link java.util.concurrent.TimeoutException} after this delay
+     */
+    CompletableFuture<Void> await(
+            @NonNull Stage stage,
+            @NonNull Function<Runnable, Runnable> subscribe,
+            @NonNull Callable<Boolean> condition,
+            long timeoutSeconds) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        AtomicBoolean pending = new AtomicBoolean();
+        Runnable evaluate = () -> {
+            pending.set(false);
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                if (condition.call()) {
+                    result.complete(null);
+                }
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        };
+        Runnable trigger = () -> {
+            if (!result.isDone() && pending.compareAndSet(false, true)) {
+                executor.execute(evaluate);
+            }
+        };
+        Runnable unsubscribe = subscribe.apply(trigger);
+        result.orTimeout(timeoutSeconds, TimeUnit.SECONDS).whenComplete((v, t) -> unsubscribe.run());
+        trigger.run();
+        return track(stage, result);
+    }
+
+    private <T> CompletableFuture<T> track(Stage stage, CompletableFuture<T> future) {
+        var inFlight = Metrics.metricRegistry().counter(stage.getMetricName());
+        inFlight.inc();
+        return future.whenComplete((v, t) -> inFlight.dec());
+    }
+
+    /**
+     * Registers a callback to run when the computer of the given node comes online.
+     * @return a handle to remove the callback
+     */
+    Runnable onAgentOnline(@NonNull String nodeName, @NonNull Runnable callback) {
+        onlineCallbacks
+                .computeIfAbsent(nodeName, k -> new CopyOnWriteArraySet<>())
+                .add(callback);
+        return () -> onlineCallbacks.computeIfPresent(nodeName, (k, v) -> {
+            v.remove(callback);
+            return v.isEmpty() ? null : v;
+        });
+    }
+
+    private void fireOnline(String nodeName) {
+        Set<Runnable> callbacks = onlineCallbacks.get(nodeName);
+        if (callbacks != null) {
+            callbacks.forEach(Runnable::run);
+        }
+    }
+
+    @Extension
+    public static class AgentOnlineListener extends ComputerListener {
+        @Override
+        public void onOnline(Computer c, TaskListener listener) {
+            if (ENABLED && c instanceof KubernetesComputer && StringUtils.isNotEmpty(c.getName())) {
+                get().fireOnline(c.getName());
+            }
+        }
+    }
+}
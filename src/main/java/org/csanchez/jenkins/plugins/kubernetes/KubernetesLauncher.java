@@ -42,14 +42,24 @@ import io.fabric8.kubernetes.api.model.ObjectMeta;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.readiness.Readiness;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -58,6 +68,7 @@ import jenkins.util.SystemProperties;
 import org.apache.commons.lang.StringUtils;
 import org.csanchez.jenkins.plugins.kubernetes.pod.decorator.PodDecoratorException;
 import org.csanchez.jenkins.plugins.kubernetes.pod.retention.Reaper;
+import org.csanchez.jenkins.plugins.kubernetes.watch.PodCache;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
@@ -83,6 +94,12 @@ public class KubernetesLauncher extends JNLPLauncher {
     @CheckForNull
     private transient Throwable problem;
 
+    /**
+     * Launch running on the {@link KubernetesLaunchPipeline}, if any.
+     */
+    @CheckForNull
+    private transient volatile CompletableFuture<Void> pendingLaunch;
+
     @DataBoundConstructor
     public KubernetesLauncher(String tunnel, String vmargs) {
         super(tunnel, vmargs);
@@ -116,9 +133,16 @@ public class KubernetesLauncher extends JNLPLauncher {
             computer.setAcceptingTasks(true);
             return;
         }
+        CompletableFuture<Void> pending = pendingLaunch;
+        if (pending != null && !pending.isDone()) {
+            LOGGER.log(INFO, "Agent is already being launched: {0}", node.getNodeName());
+            return;
+        }
 
         String cloudName = node.getCloudName();
+        long launchStart = System.nanoTime();
 
+        PodStateTracker podState = null;
         try {
             PodTemplate template = node.getTemplate();
             KubernetesCloud cloud = node.getKubernetesCloud();
@@ -154,184 +178,398 @@ public class KubernetesLauncher extends JNLPLauncher {
                 cloud.registerPodInformer(node);
             }
 
-            // if the controller was interrupted after creating the pod but before it connected back, then
-            // the pod might already exist and the creating logic must be skipped.
-            Pod existingPod =
-                    client.pods().inNamespace(namespace).withName(podName).get();
-            if (existingPod == null) {
-                LOGGER.log(FINE, () -> "Creating Pod: " + cloudName + " " + namespace + "/" + podName);
-                try {
-                    pod = client.pods().inNamespace(namespace).create(pod);
-                } catch (KubernetesClientException e) {
-                    Metrics.metricRegistry()
-                            .counter(MetricNames.CREATION_FAILED)
-                            .inc();
-                    int httpCode = e.getCode();
-                    if (400 <= httpCode && httpCode < 500) { // 4xx
-                        if (httpCode == 403 && e.getMessage().contains("is forbidden: exceeded quota")) {
-                            node.getRunListener()
-                                    .getLogger()
-                                    .printf(
-                                            "WARNING: Unable to create pod: %s %s/%s because kubernetes resource quota exceeded. %n%s%nRetrying...%n%n",
-                                            cloudName,
-                                            namespace,
-                                            pod.getMetadata().getName(),
-                                            e.getMessage());
-                        } else if (httpCode == 409
-                                && e.getMessage().contains("Operation cannot be fulfilled on resourcequotas")) {
-                            // See: https://github.com/kubernetes/kubernetes/issues/67761 ; A retry usually works.
-                            node.getRunListener()
-                                    .getLogger()
-                                    .printf(
-                                            "WARNING: Unable to create pod: %s %s/%s because kubernetes resource quota update conflict. %n%s%nRetrying...%n%n",
-                                            cloudName,
-                                            namespace,
-                                            pod.getMetadata().getName(),
-                                            e.getMessage());
-                        } else {
-                            node.getRunListener()
-                                    .getLogger()
-                                    .printf(
-                                            "ERROR: Unable to create pod %s %s/%s.%n%s%n",
-                                            cloudName,
-                                            namespace,
-                                            pod.getMetadata().getName(),
-                                            e.getMessage());
-                            PodUtils.cancelQueueItemFor(pod, e.getMessage());
-                        }
-                    } else if (500 <= httpCode && httpCode < 600) { // 5xx
-                        LOGGER.log(FINE, "Kubernetes returned HTTP code {0} {1}. Retrying...", new Object[] {
-                            e.getCode(), e.getStatus()
-                        });
-                    } else {
-                        LOGGER.log(WARNING, "Kubernetes returned unhandled HTTP code {0} {1}", new Object[] {
-                            e.getCode(), e.getStatus()
-                        });
-                    }
-                    throw e;
-                }
-                LOGGER.log(INFO, () -> "Created Pod: " + cloudName + " " + namespace + "/" + podName);
-                listener.getLogger().printf("Created Pod: %s %s/%s%n", cloudName, namespace, podName);
-                Metrics.metricRegistry().counter(MetricNames.PODS_CREATED).inc();
+            podState = new PodStateTracker(
+                    client, DISABLE_DIAGNOSTIC_LOGS ? null : cloud.getPodCache(namespace), namespace, podName);
 
-                node.getRunListener().getLogger().printf("Created Pod: %s %s/%s%n", cloudName, namespace, podName);
-            } else {
-                LOGGER.log(INFO, () -> "Pod already exists: " + cloudName + " " + namespace + "/" + podName);
-                listener.getLogger().printf("Pod already exists: %s %s/%s%n", cloudName, namespace, podName);
+            if (KubernetesLaunchPipeline.ENABLED && podState.isCached()) {
+                pendingLaunch = launchAsync(
+                        kubernetesComputer, listener, cloud, node, template, client, pod, podState, launchStart);
+                // closed once the launch completes
+                podState = null;
+                return;
             }
+            pod = createPodIfAbsent(cloud, node, listener, client, pod, namespace);
             kubernetesComputer.setLaunching(true);
+            createVolumes(template, client, pod);
 
-            ObjectMeta podMetadata = pod.getMetadata();
-            template.getWorkspaceVolume().createVolume(client, podMetadata);
-            template.getVolumes().forEach(volume -> volume.createVolume(client, podMetadata));
-
-            client.pods()
-                    .inNamespace(namespace)
-                    .withName(podName)
-                    .waitUntilReady(template.getSlaveConnectTimeout(), TimeUnit.SECONDS);
+            podState.waitUntilReady(template.getSlaveConnectTimeout());
 
             LOGGER.log(INFO, () -> "Pod is running: " + cloudName + " " + namespace + "/" + podName);
 
-            // We need the pod to be running and connected before returning
-            // otherwise this method keeps being called multiple times
-            // so wait for agent to be online
-            int waitForSlaveToConnect = template.getSlaveConnectTimeout();
-            int waitedForSlave;
-
-            SlaveComputer slaveComputer = null;
-            String status = null;
-            List<ContainerStatus> containerStatuses = null;
-            long lastReportTimestamp = System.currentTimeMillis();
-            for (waitedForSlave = 0; waitedForSlave < waitForSlaveToConnect; waitedForSlave++) {
-                slaveComputer = node.getComputer();
-                if (slaveComputer == null) {
-                    Metrics.metricRegistry().counter(MetricNames.LAUNCH_FAILED).inc();
-                    throw new IllegalStateException("Node was deleted, computer is null");
-                }
-                if (slaveComputer.isOnline()) {
-                    break;
-                }
+            waitForAgentToConnect(node, listener, template, client, podState);
 
-                // Check that the pod hasn't failed already
-                pod = client.pods().inNamespace(namespace).withName(podName).get();
-                if (pod == null) {
-                    Metrics.metricRegistry().counter(MetricNames.LAUNCH_FAILED).inc();
-                    throw new IllegalStateException("Pod no longer exists: " + podName);
+            onLaunched(kubernetesComputer, node, launchStart);
+        } catch (Throwable ex) {
+            onLaunchFailure(node, ex);
+            throw new RuntimeException(ex);
+        } finally {
+            if (podState != null) {
+                podState.close();
+            }
+        }
+    }
+
+    private void onLaunched(KubernetesComputer computer, KubernetesSlave node, long launchStart) {
+        computer.setAcceptingTasks(true);
+        launched = true;
+        try {
+            // We need to persist the "launched" setting...
+            node.save();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not save() agent: " + e.getMessage(), e);
+        }
+        Metrics.metricRegistry().counter(MetricNames.PODS_LAUNCHED).inc();
+        CloudLaunchStatistics.get()
+                .recordSuccess(node.getCloudName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launchStart));
+    }
+
+    private void onLaunchFailure(KubernetesSlave node, Throwable ex) {
+        CloudLaunchStatistics.get().recordFailure(node.getCloudName());
+        setProblem(ex);
+        Functions.printStackTrace(ex, node.getRunListener().error("Failed to launch " + node.getPodName()));
+        LOGGER.log(
+                Level.WARNING,
+                String.format("Error in provisioning; agent=%s, template=%s", node, node.getTemplateId()),
+                ex);
+        LOGGER.log(Level.FINER, "Removing Jenkins node: {0}", node.getNodeName());
+        terminateOrLog(node);
+    }
+
+    /**
+     * Creates the pod of the agent, unless it already exists.
+     * The pod is created optimistically: it is only looked up when the API server reports that it already exists,
+     * which happens when the controller was restarted while the agent was launching.
+     * @return the pod
+     */
+    private Pod createPodIfAbsent(
+            KubernetesCloud cloud,
+            KubernetesSlave node,
+            TaskListener listener,
+            KubernetesClient client,
+            Pod pod,
+            String namespace)
+            throws InterruptedException {
+        String cloudName = node.getCloudName();
+        String podName = pod.getMetadata().getName();
+        LOGGER.log(FINE, () -> "Creating Pod: " + cloudName + " " + namespace + "/" + podName);
+        try {
+            Pod toCreate = pod;
+            pod = cloud.getPodCreationBatcher().create(node.getNodeName(), () -> cloud.getApiThrottle()
+                    .call(KubernetesApiThrottle.Priority.HIGH, () -> client.pods()
+                            .inNamespace(namespace)
+                            .create(toCreate)));
+        } catch (KubernetesClientException e) {
+            if (e.getCause() instanceof InterruptedIOException) {
+                // interrupted while waiting for the API throttle, the pod was not created
+                Thread.interrupted();
+                InterruptedException x = new InterruptedException("Interrupted while creating pod " + podName);
+                x.initCause(e);
+                throw x;
+            }
+            // if the controller was interrupted after creating the pod but before it connected back, then
+            // the pod might already exist and the creating logic must be skipped.
+            if (isAlreadyExists(e)) {
+                Pod existingPod = client.pods().inNamespace(namespace).withName(podName).get();
+                if (existingPod != null) {
+                    LOGGER.log(INFO, () -> "Pod already exists: " + cloudName + " " + namespace + "/" + podName);
+                    listener.getLogger().printf("Pod already exists: %s %s/%s%n", cloudName, namespace, podName);
+                    return existingPod;
                 }
-                status = pod.getStatus().getPhase();
-                if (POD_TERMINATED_STATES.contains(status)) {
-                    Metrics.metricRegistry().counter(MetricNames.LAUNCH_FAILED).inc();
-                    Metrics.metricRegistry()
-                            .counter(MetricNames.metricNameForPodStatus(status))
-                            .inc();
-                    logLastLines(containerStatuses, podName, namespace, node, null, client);
-                    throw new IllegalStateException("Pod '" + podName + "' is terminated. Status: " + status);
+            }
+            Metrics.metricRegistry().counter(MetricNames.CREATION_FAILED).inc();
+            int httpCode = e.getCode();
+            if (400 <= httpCode && httpCode < 500) { // 4xx
+                if (PodCreationBatcher.isQuotaExceeded(e)) {
+                    node.getRunListener()
+                            .getLogger()
+                            .printf(
+                                    "WARNING: Unable to create pod: %s %s/%s because kubernetes resource quota exceeded. %n%s%nRetrying...%n%n",
+                                    cloudName,
+                                    namespace,
+                                    pod.getMetadata().getName(),
+                                    e.getMessage());
+                } else if (PodCreationBatcher.isQuotaConflict(e)) {
+                    // See: https://github.com/kubernetes/kubernetes/issues/67761 ; A retry usually works.
+                    node.getRunListener()
+                            .getLogger()
+                            .printf(
+                                    "WARNING: Unable to create pod: %s %s/%s because kubernetes resource quota update conflict. %n%s%nRetrying...%n%n",
+                                    cloudName,
+                                    namespace,
+                                    pod.getMetadata().getName(),
+                                    e.getMessage());
+                } else {
+                    node.getRunListener()
+                            .getLogger()
+                            .printf(
+                                    "ERROR: Unable to create pod %s %s/%s.%n%s%n",
+                                    cloudName,
+                                    namespace,
+                                    pod.getMetadata().getName(),
+                                    e.getMessage());
+                    PodUtils.cancelQueueItemFor(pod, e.getMessage());
                 }
+            } else if (500 <= httpCode && httpCode < 600) { // 5xx
+                LOGGER.log(FINE, "Kubernetes returned HTTP code {0} {1}. Retrying...", new Object[] {
+                    e.getCode(), e.getStatus()
+                });
+            } else {
+                LOGGER.log(WARNING, "Kubernetes returned unhandled HTTP code {0} {1}", new Object[] {
+                    e.getCode(), e.getStatus()
+                });
+            }
+            throw e;
+        }
+        LOGGER.log(INFO, () -> "Created Pod: " + cloudName + " " + namespace + "/" + podName);
+        listener.getLogger().printf("Created Pod: %s %s/%s%n", cloudName, namespace, podName);
+        Metrics.metricRegistry().counter(MetricNames.PODS_CREATED).inc();
 
-                containerStatuses = pod.getStatus().getContainerStatuses();
-                List<ContainerStatus> terminatedContainers = new ArrayList<>();
-                for (ContainerStatus info : containerStatuses) {
-                    if (info != null) {
-                        if (info.getState().getTerminated() != null) {
-                            // Container has errored
-                            LOGGER.log(INFO, "Container is terminated {0} [{2}]: {1}", new Object[] {
-                                podName, info.getState().getTerminated(), info.getName()
-                            });
-                            listener.getLogger()
-                                    .printf(
-                                            "Container is terminated %1$s [%3$s]: %2$s%n",
-                                            podName, info.getState().getTerminated(), info.getName());
-                            Metrics.metricRegistry()
-                                    .counter(MetricNames.LAUNCH_FAILED)
-                                    .inc();
-                            terminatedContainers.add(info);
-                        }
-                    }
-                }
+        node.getRunListener().getLogger().printf("Created Pod: %s %s/%s%n", cloudName, namespace, podName);
+        return pod;
+    }
 
-                checkTerminatedContainers(terminatedContainers, podName, namespace, node, client);
+    private static boolean isAlreadyExists(KubernetesClientException e) {
+        return e.getCode() == HttpURLConnection.HTTP_CONFLICT
+                && e.getStatus() != null
+                && "AlreadyExists".equals(e.getStatus().getReason());
+    }
+
+    private static void createVolumes(PodTemplate template, KubernetesClient client, Pod pod) {
+        ObjectMeta podMetadata = pod.getMetadata();
+        template.getWorkspaceVolume().createVolume(client, podMetadata);
+        template.getVolumes().forEach(volume -> volume.createVolume(client, podMetadata));
+    }
 
-                if (lastReportTimestamp + REPORT_INTERVAL < System.currentTimeMillis()) {
-                    LOGGER.log(INFO, "Waiting for agent to connect ({1}/{2}): {0}", new Object[] {
-                        podName, waitedForSlave, waitForSlaveToConnect
+    /**
+     * Waits for the agent of a running pod to connect.
+     */
+    private void waitForAgentToConnect(
+            KubernetesSlave node,
+            TaskListener listener,
+            PodTemplate template,
+            KubernetesClient client,
+            PodStateTracker podState)
+            throws InterruptedException {
+        String namespace = podState.namespace;
+        String podName = podState.podName;
+        Pod pod;
+        // We need the pod to be running and connected before returning
+        // otherwise this method keeps being called multiple times
+        // so wait for agent to be online
+        int waitForSlaveToConnect = template.getSlaveConnectTimeout();
+        int waitedForSlave = 0;
+
+        SlaveComputer slaveComputer = null;
+        String status = null;
+        List<ContainerStatus> containerStatuses = null;
+        long lastReportTimestamp = System.currentTimeMillis();
+        long waitStartTimestamp = lastReportTimestamp;
+        while (waitedForSlave < waitForSlaveToConnect) {
+            slaveComputer = node.getComputer();
+            if (slaveComputer == null) {
+                Metrics.metricRegistry().counter(MetricNames.LAUNCH_FAILED).inc();
+                throw new IllegalStateException("Node was deleted, computer is null");
+            }
+            if (slaveComputer.isOnline()) {
+                break;
+            }
+
+            // Check that the pod hasn't failed already
+            pod = podState.get();
+            containerStatuses = checkPodNotFailed(pod, containerStatuses, node, listener, client, namespace, podName);
+            status = pod.getStatus().getPhase();
+
+            if (lastReportTimestamp + REPORT_INTERVAL < System.currentTimeMillis()) {
+                LOGGER.log(INFO, "Waiting for agent to connect ({1}/{2}): {0}", new Object[] {
+                    podName, waitedForSlave, waitForSlaveToConnect
+                });
+                listener.getLogger()
+                        .printf(
+                                "Waiting for agent to connect (%2$s/%3$s): %1$s%n",
+                                podName, waitedForSlave, waitForSlaveToConnect);
+                lastReportTimestamp = System.currentTimeMillis();
+            }
+            podState.awaitChange(1, TimeUnit.SECONDS);
+            waitedForSlave = (int) TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - waitStartTimestamp);
+        }
+        if (slaveComputer == null || slaveComputer.isOffline()) {
+            Metrics.metricRegistry().counter(MetricNames.LAUNCH_FAILED).inc();
+            Metrics.metricRegistry().counter(MetricNames.FAILED_TIMEOUT).inc();
+
+            logLastLines(containerStatuses, podName, namespace, node, null, client);
+            throw new IllegalStateException(
+                    "Agent is not connected after " + waitedForSlave + " seconds, status: " + status);
+        }
+    }
+
+    /**
+     * Checks that the pod of the agent being launched did not fail.
+     * @param pod the current state of the pod, null if it does not exist anymore
+     * @param previousStatuses the container statuses of the previous check, used for diagnostics
+     * @return the current container statuses of the pod
+     * @throws IllegalStateException if the pod is gone, terminated, or has terminated containers
+     */
+    private List<ContainerStatus> checkPodNotFailed(
+            @CheckForNull Pod pod,
+            @CheckForNull List<ContainerStatus> previousStatuses,
+            KubernetesSlave node,
+            TaskListener listener,
+            KubernetesClient client,
+            String namespace,
+            String podName) {
+        if (pod == null) {
+            Metrics.metricRegistry().counter(MetricNames.LAUNCH_FAILED).inc();
+            throw new IllegalStateException("Pod no longer exists: " + podName);
+        }
+        String status = pod.getStatus().getPhase();
+        if (POD_TERMINATED_STATES.contains(status)) {
+            Metrics.metricRegistry().counter(MetricNames.LAUNCH_FAILED).inc();
+            Metrics.metricRegistry().counter(MetricNames.metricNameForPodStatus(status)).inc();
+            logLastLines(previousStatuses, podName, namespace, node, null, client);
+            throw new IllegalStateException("Pod '" + podName + "' is terminated. Status: " + status);
+        }
+
+        List<ContainerStatus> containerStatuses = pod.getStatus().getContainerStatuses();
+        List<ContainerStatus> terminatedContainers = new ArrayList<>();
+        for (ContainerStatus info : containerStatuses) {
+            if (info != null) {
+                if (info.getState().getTerminated() != null) {
+                    // Container has errored
+                    LOGGER.log(INFO, "Container is terminated {0} [{2}]: {1}", new Object[] {
+                        podName, info.getState().getTerminated(), info.getName()
                     });
                     listener.getLogger()
                             .printf(
-                                    "Waiting for agent to connect (%2$s/%3$s): %1$s%n",
-                                    podName, waitedForSlave, waitForSlaveToConnect);
-                    lastReportTimestamp = System.currentTimeMillis();
+                                    "Container is terminated %1$s [%3$s]: %2$s%n",
+                                    podName, info.getState().getTerminated(), info.getName());
+                    Metrics.metricRegistry().counter(MetricNames.LAUNCH_FAILED).inc();
+                    terminatedContainers.add(info);
                 }
-                Thread.sleep(1000);
             }
-            if (slaveComputer == null || slaveComputer.isOffline()) {
-                Metrics.metricRegistry().counter(MetricNames.LAUNCH_FAILED).inc();
-                Metrics.metricRegistry().counter(MetricNames.FAILED_TIMEOUT).inc();
+        }
 
-                logLastLines(containerStatuses, podName, namespace, node, null, client);
-                throw new IllegalStateException(
-                        "Agent is not connected after " + waitedForSlave + " seconds, status: " + status);
-            }
+        checkTerminatedContainers(terminatedContainers, podName, namespace, node, client);
+        return containerStatuses;
+    }
 
-            computer.setAcceptingTasks(true);
-            launched = true;
-            try {
-                // We need to persist the "launched" setting...
-                node.save();
-            } catch (IOException e) {
-                LOGGER.log(Level.WARNING, "Could not save() agent: " + e.getMessage(), e);
-            }
-            Metrics.metricRegistry().counter(MetricNames.PODS_LAUNCHED).inc();
-        } catch (Throwable ex) {
-            setProblem(ex);
-            Functions.printStackTrace(ex, node.getRunListener().error("Failed to launch " + node.getPodName()));
-            LOGGER.log(
-                    Level.WARNING,
-                    String.format("Error in provisioning; agent=%s, template=%s", node, node.getTemplateId()),
-                    ex);
-            LOGGER.log(Level.FINER, "Removing Jenkins node: {0}", node.getNodeName());
-            terminateOrLog(node);
-            throw new RuntimeException(ex);
+    /**
+     * Launches the agent through a pipeline of stages running on the {@link KubernetesLaunchPipeline} executor:
+     * pod creation, volume creation, pod running and agent online.
+     * The last two stages are driven by pod and computer events instead of polling.
+     * <p>{@link #launch(SlaveComputer, TaskListener)} returns as soon as the stages are submitted, like inbound agents
+     * do, so that no computer thread is held while the pod starts. {@link #isLaunchSupported()} stays true until the
+     * agent is connected, which keeps the reaper away and counts the agent as in provisioning, and further calls to
+     * {@code launch} are ignored while the stages run. Failures are reported once the stages complete, by recording
+     * the problem and terminating the agent.
+     * @return the launch, completing once it succeeded or its failure was reported
+     */
+    private CompletableFuture<Void> launchAsync(
+            KubernetesComputer computer,
+            TaskListener listener,
+            KubernetesCloud cloud,
+            KubernetesSlave node,
+            PodTemplate template,
+            KubernetesClient client,
+            Pod pod,
+            PodStateTracker podState,
+            long launchStart) {
+        KubernetesLaunchPipeline pipeline = KubernetesLaunchPipeline.get();
+        String namespace = podState.namespace;
+        String podName = podState.podName;
+        int timeout = template.getSlaveConnectTimeout();
+        AtomicReference<List<ContainerStatus>> containerStatuses = new AtomicReference<>();
+        CompletableFuture<Void> launch = pipeline.stage(
+                        KubernetesLaunchPipeline.Stage.CREATE,
+                        () -> createPodIfAbsent(cloud, node, listener, client, pod, namespace))
+                .thenCompose(created -> pipeline.stage(KubernetesLaunchPipeline.Stage.VOLUMES, () -> {
+                    computer.setLaunching(true);
+                    createVolumes(template, client, created);
+                    return created;
+                }))
+                .thenCompose(created -> pipeline.await(
+                                KubernetesLaunchPipeline.Stage.POD_RUNNING,
+                                podState::onChange,
+                                () -> {
+                                    Pod p = podState.getCached();
+                                    return p != null && (Readiness.isPodReady(p) || PodStateTracker.isTerminated(p));
+                                },
+                                timeout)
+                        .exceptionally(t -> {
+                            if (unwrap(t) instanceof TimeoutException) {
+                                throw new IllegalStateException(
+                                        "Timed out waiting for pod " + namespace + "/" + podName + " to be ready");
+                            }
+                            throw t instanceof CompletionException
+                                    ? (CompletionException) t
+                                    : new CompletionException(t);
+                        }))
+                .thenCompose(ignored -> {
+                    LOGGER.log(INFO, () -> "Pod is running: " + node.getCloudName() + " " + namespace + "/" + podName);
+                    return pipeline.await(
+                            KubernetesLaunchPipeline.Stage.AGENT_ONLINE,
+                            callback -> {
+                                Runnable podSubscription = podState.onChange(callback);
+                                Runnable onlineSubscription = pipeline.onAgentOnline(node.getNodeName(), callback);
+                                return () -> {
+                                    podSubscription.run();
+                                    onlineSubscription.run();
+                                };
+                            },
+                            () -> {
+                                SlaveComputer slaveComputer = node.getComputer();
+                                if (slaveComputer == null) {
+                                    Metrics.metricRegistry()
+                                            .counter(MetricNames.LAUNCH_FAILED)
+                                            .inc();
+                                    throw new IllegalStateException("Node was deleted, computer is null");
+                                }
+                                if (slaveComputer.isOnline()) {
+                                    return true;
+                                }
+                                containerStatuses.set(checkPodNotFailed(
+                                        podState.get(),
+                                        containerStatuses.get(),
+                                        node,
+                                        listener,
+                                        client,
+                                        namespace,
+                                        podName));
+                                return false;
+                            },
+                            timeout);
+                });
+        // reported on the launch executor, as terminating the agent calls the API server
+        return launch.handleAsync(
+                (ignored, t) -> {
+                    try {
+                        if (t == null) {
+                            onLaunched(computer, node, launchStart);
+                            return null;
+                        }
+                        Throwable cause = unwrap(t);
+                        if (cause instanceof TimeoutException) {
+                            Metrics.metricRegistry().counter(MetricNames.LAUNCH_FAILED).inc();
+                            Metrics.metricRegistry().counter(MetricNames.FAILED_TIMEOUT).inc();
+                            logLastLines(containerStatuses.get(), podName, namespace, node, null, client);
+                            Pod current = podState.getCached();
+                            String status = current != null ? current.getStatus().getPhase() : null;
+                            cause = new IllegalStateException(
+                                    "Agent is not connected after " + timeout + " seconds, status: " + status);
+                        }
+                        onLaunchFailure(node, cause);
+                        return null;
+                    } finally {
+                        podState.close();
+                    }
+                },
+                pipeline.getExecutor());
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
         }
+        return t;
     }
 
     private static void terminateOrLog(KubernetesSlave node) {
@@ -391,6 +629,120 @@ public class KubernetesLauncher extends JNLPLauncher {
         }
     }
 
+    /**
+     * Tracks the state of the pod being launched.
+     * Reads it from the shared {@link PodCache} of the namespace when available, so that waiting for the agent
+     * does not need to poll the API server, and falls back to a direct request when the cache does not know the pod
+     * (yet).
+     */
+    private static final class PodStateTracker implements AutoCloseable {
+        private final KubernetesClient client;
+
+        @CheckForNull
+        private final PodCache podCache;
+
+        private final String namespace;
+        private final String podName;
+        private final Semaphore changed = new Semaphore(0);
+        private final Set<Runnable> listeners = new CopyOnWriteArraySet<>();
+
+        @CheckForNull
+        private final PodCache.Subscription subscription;
+
+        PodStateTracker(
+                KubernetesClient client, @CheckForNull PodCache podCache, String namespace, String podName) {
+            this.client = client;
+            this.podCache = podCache;
+            this.namespace = namespace;
+            this.podName = podName;
+            this.subscription = podCache != null ? podCache.subscribe(podName, this::fireChange) : null;
+        }
+
+        private void fireChange() {
+            changed.release();
+            listeners.forEach(Runnable::run);
+        }
+
+        /**
+         * @return true if the pod state is provided by the shared pod cache
+         */
+        boolean isCached() {
+            return podCache != null;
+        }
+
+        /**
+         * Get the pod from the cache only, suitable for informer and event threads.
+         */
+        @CheckForNull
+        Pod getCached() {
+            return podCache != null ? podCache.get(podName) : null;
+        }
+
+        /**
+         * Registers a callback invoked from the informer thread whenever the pod changes.
+         * @return a handle to remove the callback
+         */
+        Runnable onChange(Runnable callback) {
+            listeners.add(callback);
+            return () -> listeners.remove(callback);
+        }
+
+        @CheckForNull
+        Pod get() {
+            Pod pod = getCached();
+            if (pod == null) {
+                pod = client.pods().inNamespace(namespace).withName(podName).get();
+            }
+            return pod;
+        }
+
+        /**
+         * Waits until the pod changes, or until the timeout elapses.
+         */
+        void awaitChange(long timeout, TimeUnit unit) throws InterruptedException {
+            if (changed.tryAcquire(timeout, unit)) {
+                changed.drainPermits();
+            }
+        }
+
+        /**
+         * Waits until the pod is ready or terminated.
+         */
+        void waitUntilReady(int timeoutSeconds) throws InterruptedException {
+            if (podCache == null) {
+                client.pods()
+                        .inNamespace(namespace)
+                        .withName(podName)
+                        .waitUntilReady(timeoutSeconds, TimeUnit.SECONDS);
+                return;
+            }
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSeconds);
+            while (true) {
+                Pod pod = get();
+                if (pod != null && (Readiness.isPodReady(pod) || isTerminated(pod))) {
+                    return;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IllegalStateException(
+                            "Timed out waiting for pod " + namespace + "/" + podName + " to be ready");
+                }
+                awaitChange(Math.min(remaining, 1000L), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private static boolean isTerminated(Pod pod) {
+            return pod.getStatus() != null && POD_TERMINATED_STATES.contains(pod.getStatus().getPhase());
+        }
+
+        @Override
+        public void close() {
+            if (subscription != null) {
+                subscription.close();
+            }
+        }
+    }
+
     /**
      * The last problem that occurred, if any.
      * @return
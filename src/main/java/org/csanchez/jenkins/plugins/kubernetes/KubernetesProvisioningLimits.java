@@ -1,66 +1,104 @@
 package org.csanchez.jenkins.plugins.kubernetes;
 
+import com.codahale.metrics.Gauge;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
 import hudson.ExtensionList;
+import hudson.model.AsyncPeriodicWork;
 import hudson.model.Node;
 import hudson.model.Queue;
+import hudson.model.TaskListener;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jenkins.metrics.api.Metrics;
 import jenkins.model.Jenkins;
 import jenkins.model.NodeListener;
+import jenkins.util.SystemProperties;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Implements provisioning limits for clouds and pod templates
+ * <p>Counts are kept in one atomic counter per cloud and per pod template, and executors are reserved with
+ * compare-and-set on the cloud counter then on the pod template counter, so that provisioning on independent clouds
+ * and templates does not contend on a shared lock.
  */
 @Extension
 public final class KubernetesProvisioningLimits {
     private static final Logger LOGGER = Logger.getLogger(KubernetesProvisioningLimits.class.getName());
 
-    private final AtomicBoolean init = new AtomicBoolean();
+    private final Object initLock = new Object();
+
+    private volatile boolean initialized;
 
     /**
      * Tracks current number of kubernetes agents per pod template
      */
-    private final ConcurrentMap<String, Integer> podTemplateCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> podTemplateCounts = new ConcurrentHashMap<>();
 
     /**
      * Tracks current number of kubernetes agents per kubernetes cloud
      */
-    private final ConcurrentMap<String, Integer> cloudCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> cloudCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Executors registered for agents that were not added yet, by counter key, with the time of their registration.
+     * They are counted by {@link #register} but not found among the nodes, so reconciliation leaves them out until
+     * they are older than {@link #PENDING_TIMEOUT}.
+     */
+    private final ConcurrentMap<String, Deque<Long>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Drift found by the previous reconciliation, by counter key. Guarded by this.
+     */
+    private Map<String, Integer> previousDrifts = Map.of();
+
+    /**
+     * Total drift found by the last reconciliation, in executors.
+     */
+    private volatile int totalDrift;
+
+    /**
+     * Time after which executors registered for an agent that was never added are considered leaked, in seconds.
+     */
+    private static final long PENDING_TIMEOUT = SystemProperties.getLong(
+            KubernetesProvisioningLimits.class.getName() + ".pendingTimeout", TimeUnit.MINUTES.toSeconds(10));
 
     /**
      * Initialize limits counter
      * @return whether the instance was already initialized before this call.
      */
     private boolean initInstance() {
-        if (init.compareAndSet(false, true)) {
-            Queue.withLock(() -> {
-                synchronized (this) {
+        if (initialized) {
+            return true;
+        }
+        boolean[] alreadyInitialized = {true};
+        // take the queue lock first, as register may be called while holding it
+        Queue.withLock(() -> {
+            synchronized (initLock) {
+                if (!initialized) {
                     Jenkins.get().getNodes().stream()
                             .filter(KubernetesSlave.class::isInstance)
                             .map(KubernetesSlave.class::cast)
                             .forEach(node -> {
-                                cloudCounts.put(
-                                        node.getCloudName(),
-                                        getGlobalCount(node.getCloudName()) + node.getNumExecutors());
-                                podTemplateCounts.put(
-                                        node.getTemplateId(),
-                                        getPodTemplateCount(node.getTemplateId()) + node.getNumExecutors());
+                                counter(cloudCounts, node.getCloudName()).addAndGet(node.getNumExecutors());
+                                counter(podTemplateCounts, node.getTemplateId())
+                                        .addAndGet(node.getNumExecutors());
                             });
+                    initialized = true;
+                    alreadyInitialized[0] = false;
                 }
-            });
-
-            return false;
-        } else {
-            return true;
-        }
+            }
+        });
+        return alreadyInitialized[0];
     }
 
     /**
@@ -78,95 +116,266 @@ public final class KubernetesProvisioningLimits {
      */
     public boolean register(@NonNull KubernetesCloud cloud, @NonNull PodTemplate podTemplate, int numExecutors) {
         initInstance();
-        synchronized (this) {
-            int newGlobalCount = getGlobalCount(cloud.name) + numExecutors;
-            if (newGlobalCount <= cloud.getContainerCap()) {
-                int newPodTemplateCount = getPodTemplateCount(podTemplate.getId()) + numExecutors;
-                if (newPodTemplateCount <= podTemplate.getInstanceCap()) {
-                    cloudCounts.put(cloud.name, newGlobalCount);
-                    LOGGER.log(
-                            Level.FINEST,
-                            () -> cloud.name + " global limit: " + newGlobalCount + "/" + cloud.getContainerCap());
-
-                    podTemplateCounts.put(podTemplate.getId(), newPodTemplateCount);
-                    LOGGER.log(
-                            Level.FINEST,
-                            () -> podTemplate.getName() + " template limit: " + newPodTemplateCount + "/"
-                                    + podTemplate.getInstanceCap());
-                    return true;
-                } else {
-                    LOGGER.log(
-                            Level.FINEST,
-                            () -> podTemplate.getName() + " template limit reached: "
-                                    + getPodTemplateCount(podTemplate.getId()) + "/" + podTemplate.getInstanceCap()
-                                    + ". Cannot add " + numExecutors + " more!");
-                    Metrics.metricRegistry()
-                            .counter(MetricNames.REACHED_POD_CAP)
-                            .inc();
-                }
-            } else {
-                LOGGER.log(
-                        Level.FINEST,
-                        () -> cloud.name + " global limit reached: " + getGlobalCount(cloud.name) + "/"
-                                + cloud.getContainerCap() + ". Cannot add " + numExecutors + " more!");
-                Metrics.metricRegistry().counter(MetricNames.REACHED_GLOBAL_CAP).inc();
-            }
+        AtomicInteger cloudCount = counter(cloudCounts, cloud.name);
+        int newGlobalCount = reserve(cloudCount, numExecutors, cloud.getContainerCap());
+        if (newGlobalCount < 0) {
+            LOGGER.log(
+                    Level.FINEST,
+                    () -> cloud.name + " global limit reached: " + getGlobalCount(cloud.name) + "/"
+                            + cloud.getContainerCap() + ". Cannot add " + numExecutors + " more!");
+            Metrics.metricRegistry().counter(MetricNames.REACHED_GLOBAL_CAP).inc();
+            return false;
+        }
+        int newPodTemplateCount =
+                reserve(counter(podTemplateCounts, podTemplate.getId()), numExecutors, podTemplate.getInstanceCap());
+        if (newPodTemplateCount < 0) {
+            // give back the cloud reservation
+            cloudCount.addAndGet(-numExecutors);
+            LOGGER.log(
+                    Level.FINEST,
+                    () -> podTemplate.getName() + " template limit reached: "
+                            + getPodTemplateCount(podTemplate.getId()) + "/" + podTemplate.getInstanceCap()
+                            + ". Cannot add " + numExecutors + " more!");
+            Metrics.metricRegistry().counter(MetricNames.REACHED_POD_CAP).inc();
             return false;
         }
+        long now = System.nanoTime();
+        for (int i = 0; i < numExecutors; i++) {
+            pending(cloudKey(cloud.name)).addLast(now);
+            pending(templateKey(podTemplate.getId())).addLast(now);
+        }
+        LOGGER.log(Level.FINEST, () -> cloud.name + " global limit: " + newGlobalCount + "/" + cloud.getContainerCap());
+        LOGGER.log(
+                Level.FINEST,
+                () -> podTemplate.getName() + " template limit: " + newPodTemplateCount + "/"
+                        + podTemplate.getInstanceCap());
+        return true;
     }
 
     /**
-     * Unregisters executors, when an agent is terminated
+     * Unregisters executors, when the agent they were registered for could not be added
      * @param cloud the kubernetes cloud the executors were on
      * @param podTemplate the pod template used to schedule the agent
      * @param numExecutors the number of executors (pretty much always 1)
      */
     public void unregister(@NonNull KubernetesCloud cloud, @NonNull PodTemplate podTemplate, int numExecutors) {
+        settle(cloud.name, podTemplate.getId(), numExecutors);
+        unregisterAgent(cloud, podTemplate, numExecutors);
+    }
+
+    /**
+     * Marks executors registered earlier as no longer pending, once their agent was added or given up.
+     */
+    private void settle(String cloudName, String podTemplateId, int numExecutors) {
+        for (int i = 0; i < numExecutors; i++) {
+            pending(cloudKey(cloudName)).pollFirst();
+            pending(templateKey(podTemplateId)).pollFirst();
+        }
+    }
+
+    private Deque<Long> pending(String key) {
+        Deque<Long> deque = pending.get(key);
+        return deque != null ? deque : pending.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+    }
+
+    /**
+     * Unregisters executors, when an agent is terminated
+     */
+    private void unregisterAgent(@NonNull KubernetesCloud cloud, @NonNull PodTemplate podTemplate, int numExecutors) {
         if (initInstance()) {
-            synchronized (this) {
-                int newGlobalCount = getGlobalCount(cloud.name) - numExecutors;
-                if (newGlobalCount < 0) {
-                    LOGGER.log(
-                            Level.WARNING,
-                            "Global count for " + cloud.name
-                                    + " went below zero. There is likely a bug in kubernetes-plugin");
-                }
-                cloudCounts.put(cloud.name, Math.max(0, newGlobalCount));
+            int newGlobalCount = release(counter(cloudCounts, cloud.name), numExecutors);
+            if (newGlobalCount < 0) {
                 LOGGER.log(
-                        Level.FINEST,
-                        () -> cloud.name + " global limit: " + Math.max(0, newGlobalCount) + "/"
-                                + cloud.getContainerCap());
-
-                int newPodTemplateCount = getPodTemplateCount(podTemplate.getId()) - numExecutors;
-                if (newPodTemplateCount < 0) {
-                    LOGGER.log(
-                            Level.WARNING,
-                            "Pod template count for " + podTemplate.getName()
-                                    + " went below zero. There is likely a bug in kubernetes-plugin");
-                }
-                podTemplateCounts.put(podTemplate.getId(), Math.max(0, newPodTemplateCount));
+                        Level.WARNING,
+                        "Global count for " + cloud.name
+                                + " went below zero. There is likely a bug in kubernetes-plugin");
+            }
+            LOGGER.log(
+                    Level.FINEST,
+                    () -> cloud.name + " global limit: " + Math.max(0, newGlobalCount) + "/"
+                            + cloud.getContainerCap());
+
+            int newPodTemplateCount = release(counter(podTemplateCounts, podTemplate.getId()), numExecutors);
+            if (newPodTemplateCount < 0) {
                 LOGGER.log(
-                        Level.FINEST,
-                        () -> podTemplate.getName() + " template limit: " + Math.max(0, newPodTemplateCount) + "/"
-                                + podTemplate.getInstanceCap());
+                        Level.WARNING,
+                        "Pod template count for " + podTemplate.getName()
+                                + " went below zero. There is likely a bug in kubernetes-plugin");
+            }
+            LOGGER.log(
+                    Level.FINEST,
+                    () -> podTemplate.getName() + " template limit: " + Math.max(0, newPodTemplateCount) + "/"
+                            + podTemplate.getInstanceCap());
+        }
+    }
+
+    /**
+     * Compare the counters with the executors of the existing agents, and correct them.
+     * <p>Executors registered for agents that were not added yet are expected too, unless they are older than
+     * {@link #PENDING_TIMEOUT}. As counters, nodes and pending registrations cannot be read at once, a drift is only
+     * corrected once it has been seen by two consecutive reconciliations, and by no more than the smallest of both.
+     * Counters are corrected with atomic additions, {@link #register} is never blocked.
+     */
+    void reconcile() {
+        reconcile(System.nanoTime());
+    }
+
+    synchronized void reconcile(long nowNanos) {
+        if (!initialized) {
+            return;
+        }
+        Map<String, Integer> expected = new HashMap<>();
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(PENDING_TIMEOUT);
+        pending.forEach((key, deque) -> {
+            Long registered;
+            while ((registered = deque.peekFirst()) != null && nowNanos - registered > timeoutNanos) {
+                // never added nor unregistered, counted as drift below
+                deque.remove(registered);
+            }
+            int size = deque.size();
+            if (size > 0) {
+                expected.merge(key, size, Integer::sum);
+            }
+        });
+        Jenkins.get().getNodes().stream()
+                .filter(KubernetesSlave.class::isInstance)
+                .map(KubernetesSlave.class::cast)
+                .forEach(node -> {
+                    expected.merge(cloudKey(node.getCloudName()), node.getNumExecutors(), Integer::sum);
+                    expected.merge(templateKey(node.getTemplateId()), node.getNumExecutors(), Integer::sum);
+                });
+        Map<String, AtomicInteger> counters = new HashMap<>();
+        cloudCounts.forEach((k, v) -> counters.put(cloudKey(k), v));
+        podTemplateCounts.forEach((k, v) -> counters.put(templateKey(k), v));
+
+        Map<String, Integer> drifts = new HashMap<>();
+        int total = 0;
+        for (Map.Entry<String, AtomicInteger> entry : counters.entrySet()) {
+            String key = entry.getKey();
+            int drift = entry.getValue().get() - expected.getOrDefault(key, 0);
+            if (drift == 0) {
+                continue;
+            }
+            total += Math.abs(drift);
+            int previous = previousDrifts.getOrDefault(key, 0);
+            if (Integer.signum(previous) != Integer.signum(drift)) {
+                drifts.put(key, drift);
+                continue;
+            }
+            int correction = Integer.signum(drift) * Math.min(Math.abs(previous), Math.abs(drift));
+            int corrected = release(entry.getValue(), correction);
+            LOGGER.log(
+                    Level.WARNING,
+                    "Provisioning count for {0} was off by {1}, corrected to {2}",
+                    new Object[] {key, correction, Math.max(0, corrected)});
+        }
+        previousDrifts = drifts;
+        totalDrift = total;
+        Metrics.metricRegistry().gauge(MetricNames.PROVISIONING_LIMITS_DRIFT, () -> (Gauge<Integer>) () -> totalDrift);
+    }
+
+    private static String cloudKey(String cloudName) {
+        return "cloud " + cloudName;
+    }
+
+    private static String templateKey(String podTemplateId) {
+        return "template " + podTemplateId;
+    }
+
+    private static AtomicInteger counter(ConcurrentMap<String, AtomicInteger> counts, String key) {
+        AtomicInteger counter = counts.get(key);
+        return counter != null ? counter : counts.computeIfAbsent(key, k -> new AtomicInteger());
+    }
+
+    /**
+     * Add to a counter unless it would exceed the cap.
+     * @return the new count, or -1 if the cap would be exceeded
+     */
+    private static int reserve(AtomicInteger counter, int delta, int cap) {
+        while (true) {
+            int current = counter.get();
+            int next = current + delta;
+            if (next > cap) {
+                return -1;
+            }
+            if (counter.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Subtract from a counter without going below zero.
+     * @return the new count before clamping, negative if the counter would have gone below zero
+     */
+    private static int release(AtomicInteger counter, int delta) {
+        while (true) {
+            int current = counter.get();
+            int next = current - delta;
+            if (counter.compareAndSet(current, Math.max(0, next))) {
+                return next;
             }
         }
     }
 
+    /**
+     * @param cloud the kubernetes cloud
+     * @return the number of executors that can still be provisioned on the cloud before reaching its container cap
+     */
+    @Restricted(NoExternalUse.class)
+    public int getRemainingCapacity(@NonNull KubernetesCloud cloud) {
+        initInstance();
+        return Math.max(0, cloud.getContainerCap() - getGlobalCount(cloud.name));
+    }
+
     @NonNull
     @Restricted(NoExternalUse.class)
     int getGlobalCount(String cloudName) {
-        return cloudCounts.getOrDefault(cloudName, 0);
+        AtomicInteger count = cloudCounts.get(cloudName);
+        return count != null ? count.get() : 0;
     }
 
     @NonNull
     @Restricted(NoExternalUse.class)
     int getPodTemplateCount(String podTemplate) {
-        return podTemplateCounts.getOrDefault(podTemplate, 0);
+        AtomicInteger count = podTemplateCounts.get(podTemplate);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Periodically fixes counters that drifted from the existing agents.
+     */
+    @Extension
+    public static final class Reconciler extends AsyncPeriodicWork {
+        private static final long RECURRENCE_PERIOD = SystemProperties.getLong(
+                KubernetesProvisioningLimits.class.getName() + ".reconcilePeriod", TimeUnit.MINUTES.toSeconds(5));
+
+        public Reconciler() {
+            super("Reconciliation of Kubernetes provisioning limits");
+        }
+
+        @Override
+        protected void execute(TaskListener listener) {
+            KubernetesProvisioningLimits.get().reconcile();
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return TimeUnit.SECONDS.toMillis(RECURRENCE_PERIOD);
+        }
     }
 
     @Extension
     public static class NodeListenerImpl extends NodeListener {
+        @Override
+        protected void onCreated(@NonNull Node node) {
+            if (node instanceof KubernetesSlave) {
+                KubernetesSlave kubernetesNode = (KubernetesSlave) node;
+                KubernetesProvisioningLimits.get()
+                        .settle(kubernetesNode.getCloudName(), kubernetesNode.getTemplateId(), node.getNumExecutors());
+            }
+        }
+
         @Override
         protected void onDeleted(@NonNull Node node) {
             if (node instanceof KubernetesSlave) {
@@ -174,7 +383,7 @@ public final class KubernetesProvisioningLimits {
                 KubernetesSlave kubernetesNode = (KubernetesSlave) node;
                 PodTemplate template = kubernetesNode.getTemplateOrNull();
                 if (template != null) {
-                    instance.unregister(kubernetesNode.getKubernetesCloud(), template, node.getNumExecutors());
+                    instance.unregisterAgent(kubernetesNode.getKubernetesCloud(), template, node.getNumExecutors());
                 }
             }
         }
@@ -218,6 +218,9 @@ public class KubernetesSlave extends AbstractCloudSlave {
 
     public void setNamespace(@NonNull String namespace) {
         this.namespace = namespace;
+        if (Jenkins.getInstanceOrNull() != null) {
+            KubernetesSlaveIndex.get().update(this);
+        }
     }
 
     @Nullable
@@ -434,7 +437,7 @@ public class KubernetesSlave extends AbstractCloudSlave {
         }
 
         if (deletePod) {
-            deleteSlavePod(listener, client);
+            deleteSlavePod(listener, cloud, client);
             Metrics.metricRegistry().counter(MetricNames.PODS_TERMINATED).inc();
         } else {
             // Log warning, as the agent pod may still be running
@@ -447,15 +450,16 @@ public class KubernetesSlave extends AbstractCloudSlave {
         listener.getLogger().println(msg);
     }
 
-    private void deleteSlavePod(TaskListener listener, KubernetesClient client) {
+    private void deleteSlavePod(TaskListener listener, KubernetesCloud cloud, KubernetesClient client) {
         if (getNamespace() == null) {
             return;
         }
         try {
-            boolean deleted = client.pods()
-                            .inNamespace(getNamespace())
-                            .withName(name)
-                            .delete()
+            boolean deleted = cloud.getApiThrottle()
+                            .call(KubernetesApiThrottle.Priority.HIGH, () -> client.pods()
+                                    .inNamespace(getNamespace())
+                                    .withName(name)
+                                    .delete())
                             .size()
                     == 1;
             if (!deleted) {
@@ -569,10 +573,16 @@ public class KubernetesSlave extends AbstractCloudSlave {
                 var name = getPodName();
                 var l = Instant.now();
                 try {
+                    var podResource = kubernetesCloud.getPodResource(ns, name);
+                    var patch = "{\"metadata\":{\"annotations\":{\"" + GarbageCollection.ANNOTATION_LAST_REFRESH
+                            + "\":\"" + l.toEpochMilli() + "\"}}}";
                     kubernetesCloud
-                            .getPodResource(ns, name)
-                            .patch("{\"metadata\":{\"annotations\":{\"" + GarbageCollection.ANNOTATION_LAST_REFRESH
-                                    + "\":\"" + l.toEpochMilli() + "\"}}}");
+                            .getApiThrottle()
+                            .call(KubernetesApiThrottle.Priority.LOW, () -> podResource.patch(patch));
+                } catch (KubernetesApiThrottle.Rejected e) {
+                    LOGGER.log(
+                            Level.FINE, () -> "Skipping TTL annotation of " + ns + "/" + name + ": " + e.getMessage());
+                    return;
                 } catch (KubernetesAuthException e) {
                     e.printStackTrace(listener.error("Failed to authenticate to Kubernetes cluster"));
                 } catch (IOException e) {
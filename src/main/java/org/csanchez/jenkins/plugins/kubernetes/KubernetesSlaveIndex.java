@@ -0,0 +1,182 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Node;
+import hudson.model.listeners.ItemListener;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jenkins.model.Jenkins;
+import jenkins.model.NodeListener;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Index of {@link KubernetesSlave} nodes by pod namespace and name, so that pod events can be dispatched to their
+ * node without scanning all Jenkins nodes.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class KubernetesSlaveIndex {
+
+    private final AtomicBoolean init = new AtomicBoolean();
+
+    /**
+     * namespace/pod name -> node
+     */
+    private final ConcurrentMap<String, KubernetesSlave> nodesByPod = new ConcurrentHashMap<>();
+
+    /**
+     * node name -> namespace/pod name, to remove stale keys when a node is updated or deleted
+     */
+    private final ConcurrentMap<String, String> keysByNode = new ConcurrentHashMap<>();
+
+    /**
+     * @return the singleton instance
+     */
+    public static KubernetesSlaveIndex get() {
+        return ExtensionList.lookupSingleton(KubernetesSlaveIndex.class);
+    }
+
+    /**
+     * Index nodes loaded from disk, which do not trigger {@link NodeListener} events.
+     */
+    private void initInstance() {
+        if (init.compareAndSet(false, true)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Index the current nodes, and drop the ones that are gone or were replaced, e.g. after the configuration was
+     * reloaded from disk.
+     */
+    synchronized void rebuild() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins == null) {
+            return;
+        }
+        Set<String> names = new HashSet<>();
+        for (Node node : jenkins.getNodes()) {
+            if (node instanceof KubernetesSlave) {
+                add((KubernetesSlave) node);
+                names.add(node.getNodeName());
+            }
+        }
+        keysByNode.keySet().retainAll(names);
+        nodesByPod.values().removeIf(node -> jenkins.getNode(node.getNodeName()) != node);
+    }
+
+    /**
+     * Look up the node of a pod.
+     * @param namespace pod namespace
+     * @param podName pod name
+     * @return the node, or null if no node is known for this pod
+     */
+    @CheckForNull
+    public KubernetesSlave get(@CheckForNull String namespace, @CheckForNull String podName) {
+        if (podName == null) {
+            return null;
+        }
+        initInstance();
+        String key = key(namespace, podName);
+        KubernetesSlave node = nodesByPod.get(key);
+        if (node != null && isStale(node)) {
+            rebuild();
+            node = nodesByPod.get(key);
+        }
+        return node;
+    }
+
+    /**
+     * @return whether the node is no longer the one known to Jenkins under its name
+     */
+    private static boolean isStale(@NonNull KubernetesSlave node) {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        return jenkins != null && jenkins.getNode(node.getNodeName()) != node;
+    }
+
+    /**
+     * Add or re-index a node, e.g. after its namespace has been set.
+     * @param node the node
+     */
+    public void add(@NonNull KubernetesSlave node) {
+        String podName = node.getPodName();
+        if (podName == null) {
+            return;
+        }
+        String key = key(node.getNamespace(), podName);
+        String previous = keysByNode.put(node.getNodeName(), key);
+        if (previous != null && !previous.equals(key)) {
+            nodesByPod.remove(previous, node);
+        }
+        nodesByPod.put(key, node);
+    }
+
+    /**
+     * Remove a node from the index.
+     * @param node the node
+     */
+    public void remove(@NonNull KubernetesSlave node) {
+        String key = keysByNode.remove(node.getNodeName());
+        if (key != null) {
+            nodesByPod.remove(key, node);
+        }
+    }
+
+    /**
+     * Re-index a node if it is already indexed.
+     */
+    void update(@NonNull KubernetesSlave node) {
+        if (keysByNode.containsKey(node.getNodeName())) {
+            add(node);
+        }
+    }
+
+    private static String key(@CheckForNull String namespace, @NonNull String podName) {
+        return namespace + "/" + podName;
+    }
+
+    /**
+     * Nodes loaded from disk replace the indexed ones without {@link NodeListener} events.
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onLoaded() {
+            get().rebuild();
+        }
+    }
+
+    @Extension
+    public static class NodeListenerImpl extends NodeListener {
+        @Override
+        protected void onCreated(@NonNull Node node) {
+            if (node instanceof KubernetesSlave) {
+                get().add((KubernetesSlave) node);
+            }
+        }
+
+        @Override
+        protected void onUpdated(@NonNull Node oldOne, @NonNull Node newOne) {
+            if (oldOne instanceof KubernetesSlave) {
+                get().remove((KubernetesSlave) oldOne);
+            }
+            if (newOne instanceof KubernetesSlave) {
+                get().add((KubernetesSlave) newOne);
+            }
+        }
+
+        @Override
+        protected void onDeleted(@NonNull Node node) {
+            if (node instanceof KubernetesSlave) {
+                get().remove((KubernetesSlave) node);
+            }
+        }
+    }
+}
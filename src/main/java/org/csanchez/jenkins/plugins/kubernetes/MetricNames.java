@@ -15,9 +15,30 @@ public class MetricNames {
     public static final String PROVISION_NODES = PREFIX + ".provision.nodes";
     public static final String PROVISION_FAILED = PREFIX + ".provision.failed";
     public static final String PODS_LAUNCHED = PREFIX + ".pods.launched";
+    public static final String PROVISION_BATCH_LATENCY = PREFIX + ".provision.batch.latency";
+    public static final String PROVISION_BATCH_CREATED = PREFIX + ".provision.batch.created";
+    public static final String PROVISION_BATCH_FAILED = PREFIX + ".provision.batch.failed";
+    public static final String PROVISION_BATCH_RETRIES = PREFIX + ".provision.batch.retries";
+    public static final String PROVISIONING_LIMITS_DRIFT = PREFIX + ".provision.limits.drift";
+    public static final String UNWRAP_CACHE_HITS = PREFIX + ".templates.unwrap.cache.hits";
+    public static final String UNWRAP_CACHE_MISSES = PREFIX + ".templates.unwrap.cache.misses";
+    public static final String WARM_POOL_PROVISIONED = PREFIX + ".warmpool.provisioned";
+    public static final String WARM_POOL_DRAINED = PREFIX + ".warmpool.drained";
+    public static final String FORECAST_PROVISIONED = PREFIX + ".forecast.provisioned";
+    public static final String API_CALLS_THROTTLED = PREFIX + ".api.throttled";
+    public static final String API_CALLS_SHED = PREFIX + ".api.shed";
+    public static final String API_BREAKER_OPENED = PREFIX + ".api.breaker.opened";
 
     public static String metricNameForPodStatus(String status) {
         String formattedStatus = status == null ? "null" : status.toLowerCase(Locale.getDefault());
         return PREFIX + ".pods.launch.status." + formattedStatus;
     }
+
+    public static String metricNameForForecast(String label, String kind) {
+        return PREFIX + ".forecast." + label.replaceAll("[^A-Za-z0-9_-]", "_") + "." + kind;
+    }
+
+    public static String metricNameForLaunchStage(String stage) {
+        return PREFIX + ".pods.launch.inflight." + stage;
+    }
 }
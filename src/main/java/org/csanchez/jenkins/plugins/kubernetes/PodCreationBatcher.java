@@ -0,0 +1,216 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import java.net.HttpURLConnection;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.metrics.api.Metrics;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Coordinates the pod creations of a {@link KubernetesCloud}.
+ * <p>Agents planned in the same provisioning round form a batch. Creations are submitted with a bounded
+ * parallelism, and a resource quota error on any of them makes every creation of the cloud back off, instead of each
+ * launcher retrying on its own.
+ */
+@Restricted(NoExternalUse.class)
+public class PodCreationBatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(PodCreationBatcher.class.getName());
+
+    private static final int PARALLELISM =
+            SystemProperties.getInteger(PodCreationBatcher.class.getName() + ".parallelism", 10);
+
+    private static final int MAX_RETRIES =
+            SystemProperties.getInteger(PodCreationBatcher.class.getName() + ".maxRetries", 3);
+
+    private static final long INITIAL_BACKOFF_MILLIS =
+            SystemProperties.getLong(PodCreationBatcher.class.getName() + ".initialBackoffMillis", 1000L);
+
+    private static final long MAX_BACKOFF_MILLIS =
+            SystemProperties.getLong(PodCreationBatcher.class.getName() + ".maxBackoffMillis", 30000L);
+
+    /**
+     * Batches are dropped if some of their agents are not launched after this delay.
+     */
+    private static final long BATCH_EXPIRY_NANOS = TimeUnit.MINUTES.toNanos(15);
+
+    private final Semaphore permits;
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final Object backoffLock = new Object();
+    private long backoffMillis;
+    private long backoffUntilNanos;
+
+    /**
+     * node name -> batch the node was planned in
+     */
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+    public PodCreationBatcher() {
+        this(PARALLELISM, MAX_RETRIES, INITIAL_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS);
+    }
+
+    PodCreationBatcher(int parallelism, int maxRetries, long initialBackoffMillis, long maxBackoffMillis) {
+        this.permits = new Semaphore(Math.max(1, parallelism), true);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Registers the nodes planned in one provisioning round as a batch.
+     * @param nodeNames names of the planned nodes
+     */
+    public void newBatch(@NonNull Collection<String> nodeNames) {
+        long now = System.nanoTime();
+        batches.values().removeIf(b -> now - b.startNanos > BATCH_EXPIRY_NANOS);
+        if (nodeNames.isEmpty()) {
+            return;
+        }
+        Batch batch = new Batch(nodeNames.size(), now);
+        for (String nodeName : nodeNames) {
+            batches.put(nodeName, batch);
+        }
+    }
+
+    /**
+     * Creates a pod, waiting for a free slot and for any shared backoff to expire.
+     * Resource quota errors are retried with a backoff shared by all creations of the cloud.
+     * @param nodeName the name of the node the pod is created for
+     * @param creation performs the API call
+     * @return the result of the API call
+     * @throws KubernetesClientException if the creation failed, or quota errors persisted after all retries
+     */
+    public <T> T create(@CheckForNull String nodeName, @NonNull Supplier<T> creation) throws InterruptedException {
+        Batch batch = nodeName != null ? batches.remove(nodeName) : null;
+        boolean success = false;
+        try {
+            for (int attempt = 0; ; attempt++) {
+                awaitBackoff();
+                permits.acquire();
+                try {
+                    T result = creation.get();
+                    resetBackoff();
+                    success = true;
+                    return result;
+                } catch (KubernetesClientException e) {
+                    if (!isQuotaError(e) || attempt >= maxRetries) {
+                        throw e;
+                    }
+                    long delay = increaseBackoff();
+                    Metrics.metricRegistry().counter(MetricNames.PROVISION_BATCH_RETRIES).inc();
+                    LOGGER.log(
+                            Level.FINE,
+                            "Pod creation for {0} hit a resource quota error, retrying in {1}ms: {2}",
+                            new Object[] {nodeName, delay, e.getMessage()});
+                } finally {
+                    permits.release();
+                }
+            }
+        } finally {
+            if (batch != null) {
+                batch.complete(success);
+            }
+        }
+    }
+
+    private void awaitBackoff() throws InterruptedException {
+        while (true) {
+            long remaining;
+            synchronized (backoffLock) {
+                remaining = backoffUntilNanos - System.nanoTime();
+            }
+            if (remaining <= 0) {
+                return;
+            }
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    private long increaseBackoff() {
+        synchronized (backoffLock) {
+            long now = System.nanoTime();
+            if (backoffUntilNanos - now > 0) {
+                // another creation already backed off, share its delay
+                return TimeUnit.NANOSECONDS.toMillis(backoffUntilNanos - now);
+            }
+            backoffMillis = backoffMillis == 0 ? initialBackoffMillis : Math.min(backoffMillis * 2, maxBackoffMillis);
+            backoffUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+            return backoffMillis;
+        }
+    }
+
+    private void resetBackoff() {
+        synchronized (backoffLock) {
+            backoffMillis = 0;
+        }
+    }
+
+    /**
+     * @return whether the error is a transient resource quota error, for which a retry usually works.
+     */
+    static boolean isQuotaError(KubernetesClientException e) {
+        return isQuotaExceeded(e) || isQuotaConflict(e);
+    }
+
+    static boolean isQuotaExceeded(KubernetesClientException e) {
+        return e.getCode() == HttpURLConnection.HTTP_FORBIDDEN
+                && e.getMessage() != null
+                && e.getMessage().contains("is forbidden: exceeded quota");
+    }
+
+    static boolean isQuotaConflict(KubernetesClientException e) {
+        // See: https://github.com/kubernetes/kubernetes/issues/67761
+        return e.getCode() == HttpURLConnection.HTTP_CONFLICT
+                && e.getMessage() != null
+                && e.getMessage().contains("Operation cannot be fulfilled on resourcequotas");
+    }
+
+    /**
+     * @return the names of the nodes waiting for their pod to be created in a batch
+     */
+    Set<String> getPendingNodeNames() {
+        return batches.keySet();
+    }
+
+    private static final class Batch {
+        private final int size;
+        private final long startNanos;
+        private final AtomicInteger remaining;
+        private final AtomicInteger created = new AtomicInteger();
+
+        Batch(int size, long startNanos) {
+            this.size = size;
+            this.startNanos = startNanos;
+            this.remaining = new AtomicInteger(size);
+        }
+
+        void complete(boolean success) {
+            if (success) {
+                created.incrementAndGet();
+            }
+            if (remaining.decrementAndGet() == 0) {
+                var registry = Metrics.metricRegistry();
+                registry.timer(MetricNames.PROVISION_BATCH_LATENCY)
+                        .update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                registry.counter(MetricNames.PROVISION_BATCH_CREATED).inc(created.get());
+                registry.counter(MetricNames.PROVISION_BATCH_FAILED).inc(size - created.get());
+            }
+        }
+    }
+}
@@ -35,6 +35,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jenkins.model.Jenkins;
@@ -103,8 +104,15 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
         }
     }
 
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
     private String id;
 
+    /**
+     * Changes on every call to a setter, so that values derived from this template can tell whether it changed.
+     */
+    private transient volatile long version;
+
     private transient boolean unwrapped;
 
     private String inheritFrom;
@@ -141,6 +149,10 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
 
     private int activeDeadlineSeconds;
 
+    private int warmPoolMin;
+
+    private int warmPoolMax;
+
     private String label;
 
     /**
@@ -222,6 +234,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setYamlMergeStrategy(@CheckForNull YamlMergeStrategy yamlMergeStrategy) {
         this.yamlMergeStrategy = yamlMergeStrategy;
+        changed();
     }
 
     private YamlMergeStrategy yamlMergeStrategy;
@@ -299,11 +312,13 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setInheritFrom(String inheritFrom) {
         this.inheritFrom = Util.fixEmptyAndTrim(inheritFrom);
+        changed();
     }
 
     @DataBoundSetter
     public void setName(String name) {
         this.name = Util.fixEmptyAndTrim(name);
+        changed();
     }
 
     public String getName() {
@@ -317,6 +332,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setNamespace(String namespace) {
         this.namespace = Util.fixEmptyAndTrim(namespace);
+        changed();
     }
 
     @Deprecated
@@ -328,6 +344,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setCommand(String command) {
         getFirstContainer().ifPresent((i) -> i.setCommand(command));
+        changed();
     }
 
     @Deprecated
@@ -339,6 +356,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setArgs(String args) {
         getFirstContainer().ifPresent((i) -> i.setArgs(args));
+        changed();
     }
 
     @Deprecated
@@ -355,6 +373,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @Deprecated
     public void setRemoteFs(String remoteFs) {
         getFirstContainer().ifPresent((i) -> i.setWorkingDir(remoteFs));
+        changed();
     }
 
     @Deprecated
@@ -369,6 +388,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
         } else {
             this.instanceCap = instanceCap;
         }
+        changed();
     }
 
     public int getInstanceCap() {
@@ -386,6 +406,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
         } else {
             this.slaveConnectTimeout = slaveConnectTimeout;
         }
+        changed();
     }
 
     public int getSlaveConnectTimeout() {
@@ -426,6 +447,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setIdleMinutes(int i) {
         this.idleMinutes = i;
+        changed();
     }
 
     public int getIdleMinutes() {
@@ -435,12 +457,47 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setActiveDeadlineSeconds(int i) {
         this.activeDeadlineSeconds = i;
+        changed();
     }
 
     public int getActiveDeadlineSeconds() {
         return activeDeadlineSeconds;
     }
 
+    /**
+     * @param warmPoolMin the number of idle agents to keep ready for this template when it was not used lately
+     */
+    @DataBoundSetter
+    public void setWarmPoolMin(int warmPoolMin) {
+        this.warmPoolMin = Math.max(0, warmPoolMin);
+        changed();
+    }
+
+    public int getWarmPoolMin() {
+        return warmPoolMin;
+    }
+
+    /**
+     * @param warmPoolMax the number of idle agents to keep ready for this template while it is used
+     */
+    @DataBoundSetter
+    public void setWarmPoolMax(int warmPoolMax) {
+        this.warmPoolMax = Math.max(0, warmPoolMax);
+        changed();
+    }
+
+    public int getWarmPoolMax() {
+        return Math.max(warmPoolMin, warmPoolMax);
+    }
+
+    /**
+     * @return whether idle agents are provisioned ahead of builds for this template
+     * @see WarmPool
+     */
+    public boolean isWarmPoolEnabled() {
+        return getWarmPoolMax() > 0;
+    }
+
     @DataBoundSetter
     public void setIdleMinutesStr(String idleMinutes) {
         if (StringUtils.isBlank(idleMinutes)) {
@@ -487,6 +544,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     public void setLabel(String label) {
         this.label = Util.fixEmptyAndTrim(label);
         recomputeLabelDerivedFields();
+        changed();
     }
 
     private void recomputeLabelDerivedFields() {
@@ -511,6 +569,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setNodeSelector(String nodeSelector) {
         this.nodeSelector = Util.fixEmptyAndTrim(nodeSelector);
+        changed();
     }
 
     public String getNodeSelector() {
@@ -520,6 +579,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setNodeUsageMode(Node.Mode nodeUsageMode) {
         this.nodeUsageMode = nodeUsageMode == Node.Mode.EXCLUSIVE ? null : nodeUsageMode;
+        changed();
     }
 
     @DataBoundSetter
@@ -535,6 +595,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setPrivileged(boolean privileged) {
         getFirstContainer().ifPresent((i) -> i.setPrivileged(privileged));
+        changed();
     }
 
     @Deprecated
@@ -545,6 +606,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setRunAsUser(String runAsUser) {
         this.runAsUser = PodTemplateUtils.parseLong(runAsUser);
+        changed();
     }
 
     public String getRunAsUser() {
@@ -558,6 +620,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setRunAsGroup(String runAsGroup) {
         this.runAsGroup = PodTemplateUtils.parseLong(runAsGroup);
+        changed();
     }
 
     public String getRunAsGroup() {
@@ -571,6 +634,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setSupplementalGroups(String supplementalGroups) {
         this.supplementalGroups = Util.fixEmpty(supplementalGroups);
+        changed();
     }
 
     public String getSupplementalGroups() {
@@ -580,6 +644,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setHostNetwork(Boolean hostNetwork) {
         this.hostNetwork = hostNetwork;
+        changed();
     }
 
     public boolean isHostNetwork() {
@@ -597,6 +662,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setServiceAccount(String serviceAccount) {
         this.serviceAccount = Util.fixEmpty(serviceAccount);
+        changed();
     }
 
     public String getSchedulerName() {
@@ -606,12 +672,14 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setSchedulerName(String schedulerName) {
         this.schedulerName = Util.fixEmpty(schedulerName);
+        changed();
     }
 
     @Deprecated
     @DataBoundSetter
     public void setAlwaysPullImage(boolean alwaysPullImage) {
         getFirstContainer().ifPresent((i) -> i.setAlwaysPullImage(alwaysPullImage));
+        changed();
     }
 
     @Deprecated
@@ -623,6 +691,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @Deprecated
     public void setCapOnlyOnAlivePods(boolean capOnlyOnAlivePods) {
         this.capOnlyOnAlivePods = capOnlyOnAlivePods;
+        changed();
     }
 
     @Deprecated
@@ -638,6 +707,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setAgentContainer(@CheckForNull String agentContainer) {
         this.agentContainer = Util.fixEmpty(agentContainer);
+        changed();
     }
 
     public boolean isAgentInjection() {
@@ -647,6 +717,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setAgentInjection(boolean agentInjection) {
         this.agentInjection = agentInjection;
+        changed();
     }
 
     public List<TemplateEnvVar> getEnvVars() {
@@ -660,6 +731,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
         if (envVars != null) {
             this.envVars.addAll(envVars);
         }
+        changed();
     }
 
     @SuppressWarnings("unused") // Used by jelly
@@ -731,6 +803,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
 
     public void addAnnotations(List<PodAnnotation> annotations) {
         this.annotations.addAll(annotations);
+        changed();
     }
 
     @DataBoundSetter
@@ -747,6 +820,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
 
     public void addImagePullSecrets(List<PodImagePullSecret> imagePullSecrets) {
         this.imagePullSecrets.addAll(imagePullSecrets);
+        changed();
     }
 
     @DataBoundSetter
@@ -761,6 +835,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     public void setNodeProperties(List<? extends NodeProperty<?>> properties) {
         this.getNodeProperties().clear();
         this.getNodeProperties().addAll(properties);
+        changed();
     }
 
     @NonNull
@@ -780,6 +855,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setResourceRequestMemory(String resourceRequestMemory) {
         getFirstContainer().ifPresent((i) -> i.setResourceRequestMemory(resourceRequestMemory));
+        changed();
     }
 
     @Deprecated
@@ -791,6 +867,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setResourceLimitCpu(String resourceLimitCpu) {
         getFirstContainer().ifPresent((i) -> i.setResourceLimitCpu(resourceLimitCpu));
+        changed();
     }
 
     @Deprecated
@@ -804,6 +881,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setResourceLimitMemory(String resourceLimitMemory) {
         getFirstContainer().ifPresent((i) -> i.setResourceLimitMemory(resourceLimitMemory));
+        changed();
     }
 
     @Deprecated
@@ -815,6 +893,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setResourceRequestCpu(String resourceRequestCpu) {
         getFirstContainer().ifPresent((i) -> i.setResourceRequestCpu(resourceRequestCpu));
+        changed();
     }
 
     @DataBoundSetter
@@ -823,6 +902,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
             this.volumes.clear();
             this.volumes.addAll(items);
         }
+        changed();
     }
 
     @NonNull
@@ -841,6 +921,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setWorkspaceVolume(WorkspaceVolume workspaceVolume) {
         this.workspaceVolume = WorkspaceVolume.getDefault().equals(workspaceVolume) ? null : workspaceVolume;
+        changed();
     }
 
     @DataBoundSetter
@@ -849,6 +930,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
             this.containers.clear();
             this.containers.addAll(items);
         }
+        changed();
     }
 
     @NonNull
@@ -869,6 +951,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setYaml(String yaml) {
         this.yaml = Util.fixEmpty(yaml);
+        changed();
     }
 
     @NonNull
@@ -901,6 +984,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
         } else {
             this.yamls = Collections.emptyList();
         }
+        changed();
     }
 
     public PodRetention getPodRetention() {
@@ -910,6 +994,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setPodRetention(PodRetention podRetention) {
         this.podRetention = PodRetention.getPodTemplateDefault().equals(podRetention) ? null : podRetention;
+        changed();
     }
 
     /** @see KubernetesSlave#getRunListener */
@@ -934,6 +1019,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
 
     public void setTerminationGracePeriodSeconds(Long terminationGracePeriodSeconds) {
         this.terminationGracePeriodSeconds = terminationGracePeriodSeconds;
+        changed();
     }
 
     protected Object readResolve() {
@@ -1020,6 +1106,7 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setInheritYamlMergeStrategy(boolean inheritYamlMergeStrategy) {
         this.inheritYamlMergeStrategy = inheritYamlMergeStrategy;
+        changed();
     }
 
     boolean isShowRawYamlSet() {
@@ -1033,6 +1120,15 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
     @DataBoundSetter
     public void setShowRawYaml(boolean showRawYaml) {
         this.showRawYaml = Boolean.valueOf(showRawYaml);
+        changed();
+    }
+
+    private void changed() {
+        version = VERSIONS.incrementAndGet();
+    }
+
+    long getVersion() {
+        return version;
     }
 
     void setUnwrapped(boolean unwrapped) {
@@ -1170,6 +1266,8 @@ public class PodTemplate extends AbstractDescribableImpl<PodTemplate> implements
                         : ", slaveConnectTimeout=" + slaveConnectTimeout)
                 + (idleMinutes == 0 ? "" : ", idleMinutes=" + idleMinutes)
                 + (activeDeadlineSeconds == 0 ? "" : ", activeDeadlineSeconds=" + activeDeadlineSeconds)
+                + (warmPoolMin == 0 ? "" : ", warmPoolMin=" + warmPoolMin)
+                + (warmPoolMax == 0 ? "" : ", warmPoolMax=" + warmPoolMax)
                 + (label == null ? "" : ", label='" + label + '\'')
                 + (serviceAccount == null ? "" : ", serviceAccount='" + serviceAccount + '\'')
                 + (schedulerName == null ? "" : ", schedulerName='" + schedulerName + '\'')
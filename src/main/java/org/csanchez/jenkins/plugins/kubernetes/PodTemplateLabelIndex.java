@@ -0,0 +1,100 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Label;
+import hudson.model.labels.LabelAtom;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Index of pod templates by label atom, so that only the templates which may match a label go through the
+ * {@link PodTemplateFilter} chain.
+ * <p>An index is immutable and built for a given list of templates. It is replaced when a template is added or
+ * removed, or when the labels of a template change.
+ */
+@Restricted(NoExternalUse.class)
+public final class PodTemplateLabelIndex {
+
+    private final List<PodTemplate> templates;
+
+    /**
+     * label sets of the templates when the index was built, {@link PodTemplate#setLabel(String)} replaces them
+     */
+    private final List<Set<LabelAtom>> labelSets;
+
+    /**
+     * label atom -> positions of the templates having it
+     */
+    private final Map<LabelAtom, BitSet> positions = new HashMap<>();
+
+    PodTemplateLabelIndex(@NonNull List<PodTemplate> templates) {
+        this.templates = new ArrayList<>(templates);
+        this.labelSets = new ArrayList<>(templates.size());
+        for (int i = 0; i < this.templates.size(); i++) {
+            Set<LabelAtom> labelSet = this.templates.get(i).getLabelSet();
+            labelSets.add(labelSet);
+            if (labelSet != null) {
+                for (LabelAtom atom : labelSet) {
+                    positions.computeIfAbsent(atom, k -> new BitSet()).set(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param current the current templates
+     * @return whether this index was built for the given templates, with their current labels
+     */
+    boolean isFor(@NonNull List<PodTemplate> current) {
+        if (current.size() != templates.size()) {
+            return false;
+        }
+        for (int i = 0; i < templates.size(); i++) {
+            PodTemplate t = current.get(i);
+            if (t != templates.get(i) || t.getLabelSet() != labelSets.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the templates which may match a label, in their original order.
+     * <p>A label expression only depends on the atoms it mentions, so unless it matches an empty label set, a
+     * template must have one of these atoms to match. Candidates are not pruned if a filter runs before
+     * {@link PodTemplateLabelFilter}, as it could change the labels of templates.
+     * @param label the requested label
+     * @return the candidate templates
+     */
+    @NonNull
+    List<PodTemplate> getCandidates(@CheckForNull Label label) {
+        if (label == null || label.matches(Collections.emptySet()) || !isLabelFilterFirst()) {
+            return Collections.unmodifiableList(templates);
+        }
+        BitSet candidates = new BitSet(templates.size());
+        for (LabelAtom atom : label.listAtoms()) {
+            BitSet bits = positions.get(atom);
+            if (bits != null) {
+                candidates.or(bits);
+            }
+        }
+        List<PodTemplate> result = new ArrayList<>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            result.add(templates.get(i));
+        }
+        return result;
+    }
+
+    private static boolean isLabelFilterFirst() {
+        List<PodTemplateFilter> filters = PodTemplateFilter.all();
+        return !filters.isEmpty() && filters.get(0) instanceof PodTemplateLabelFilter;
+    }
+}
@@ -5,6 +5,8 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -22,6 +24,7 @@ import io.fabric8.kubernetes.api.model.LocalObjectReference;
 import io.fabric8.kubernetes.api.model.ObjectMeta;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.PodSecurityContext;
 import io.fabric8.kubernetes.api.model.PodSpec;
 import io.fabric8.kubernetes.api.model.Quantity;
 import io.fabric8.kubernetes.api.model.ResourceRequirements;
@@ -36,13 +39,13 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
@@ -53,6 +56,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import jenkins.util.SystemProperties;
 import org.apache.commons.lang.StringUtils;
 import org.apache.tools.ant.types.Commandline;
 import org.csanchez.jenkins.plugins.kubernetes.model.TemplateEnvVar;
@@ -63,6 +67,20 @@ public class PodTemplateUtils {
 
     private static final Logger LOGGER = Logger.getLogger(PodTemplateUtils.class.getName());
 
+    /**
+     * Maximum total length of the yaml fragments whose parsed pod is cached.
+     */
+    private static final long PARSED_YAMLS_MAX_LENGTH =
+            SystemProperties.getLong(PodTemplateUtils.class.getName() + ".parsedYamlsMaxLength", 10_000_000L);
+
+    /**
+     * yaml fragment -> parsed pod, never modified once cached
+     */
+    private static final Cache<String, Pod> PARSED_YAMLS = Caffeine.newBuilder()
+            .maximumWeight(PARSED_YAMLS_MAX_LENGTH)
+            .weigher((String yaml, Pod pod) -> yaml.length())
+            .build();
+
     private static final Pattern LABEL_VALIDATION = Pattern.compile("[a-zA-Z0-9]([_\\.\\-a-zA-Z0-9]*[a-zA-Z0-9])?");
 
     @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "tests & emergency admin")
@@ -246,18 +264,25 @@ public class PodTemplateUtils {
 
     /**
      * Combines all given pods together in order.
+     * <p>All the pods are merged in a single pass, giving the same result as combining them two by two.
      * @param pods the pods to combine
      */
     public static Pod combine(List<Pod> pods) {
-        Pod result = null;
-        for (Pod p : pods) {
-            if (result != null) {
-                result = combine(result, p);
-            } else {
-                result = p;
-            }
+        int start = 0;
+        while (start < pods.size() && pods.get(start) == null) {
+            start++;
         }
-        return result;
+        List<Pod> nonNull = pods.subList(start, pods.size());
+        if (nonNull.contains(null)) {
+            throw new IllegalArgumentException("Pod template should not be null");
+        }
+        if (nonNull.isEmpty()) {
+            return null;
+        }
+        if (nonNull.size() == 1) {
+            return nonNull.get(0);
+        }
+        return combineAll(nonNull);
     }
 
     /**
@@ -272,149 +297,136 @@ public class PodTemplateUtils {
         if (parent == null) {
             return template;
         }
+        return combineAll(List.of(parent, template));
+    }
 
-        LOGGER.finest(() -> "Combining pods, parent: " + Serialization2.asYaml(parent) + " template: "
-                + Serialization2.asYaml(template));
-
-        Map<String, String> nodeSelector =
-                mergeMaps(parent.getSpec().getNodeSelector(), template.getSpec().getNodeSelector());
-        var h = new HierarchyResolver<>(parent.getSpec(), template.getSpec());
-
-        Map<String, String> podAnnotations = mergeMaps(
-                parent.getMetadata().getAnnotations(), template.getMetadata().getAnnotations());
-        Map<String, String> podLabels = mergeMaps(
-                parent.getMetadata().getLabels(), template.getMetadata().getLabels());
-
+    /**
+     * Combines pods, each pod being the child of the previous one.
+     * <p>Fields not explicitly combined are taken from the first pod. Maps and lists are merged in order, and scalar
+     * fields take the value of the last pod that does not use the default value.
+     * @param pods at least two pods, none of them null
+     */
+    private static Pod combineAll(List<Pod> pods) {
+        Pod first = pods.get(0);
+        LOGGER.finest(() -> "Combining pods: " + pods.stream().map(Serialization2::asYaml).collect(toList()));
+
+        List<ObjectMeta> metadatas = new ArrayList<>(pods.size());
+        List<PodSpec> specs = new ArrayList<>(pods.size());
+        Map<String, String> nodeSelector = new LinkedHashMap<>();
+        Map<String, String> podAnnotations = new LinkedHashMap<>();
+        Map<String, String> podLabels = new LinkedHashMap<>();
         Set<LocalObjectReference> imagePullSecrets = new LinkedHashSet<>();
-        imagePullSecrets.addAll(parent.getSpec().getImagePullSecrets());
-        imagePullSecrets.addAll(template.getSpec().getImagePullSecrets());
-
-        // Containers
-        List<Container> combinedContainers = combineContainers(
-                parent.getSpec().getContainers(), template.getSpec().getContainers());
-
-        // Init containers
-        List<Container> combinedInitContainers = combineContainers(
-                parent.getSpec().getInitContainers(), template.getSpec().getInitContainers());
-
-        // Volumes
-        List<Volume> combinedVolumes =
-                combineVolumes(parent.getSpec().getVolumes(), template.getSpec().getVolumes());
-
-        // Tolerations
         List<Toleration> combinedTolerations = new LinkedList<>();
-        Optional.ofNullable(parent.getSpec().getTolerations()).ifPresent(combinedTolerations::addAll);
-        Optional.ofNullable(template.getSpec().getTolerations()).ifPresent(combinedTolerations::addAll);
-
-        //        WorkspaceVolume workspaceVolume = template.isCustomWorkspaceVolumeEnabled() &&
-        // template.getWorkspaceVolume() != null ? template.getWorkspaceVolume() : parent.getWorkspaceVolume();
-
-        // Tool location node properties
-        //        List<ToolLocationNodeProperty> toolLocationNodeProperties = new ArrayList<>();
-        //        toolLocationNodeProperties.addAll(parent.getNodeProperties());
-        //        toolLocationNodeProperties.addAll(template.getNodeProperties());
+        // Keep the iteration order of the hash map used when combining two by two
+        Map<String, Volume> volumesByName = new HashMap<>();
+        boolean securityContext = false;
+        for (int i = 0; i < pods.size(); i++) {
+            Pod pod = pods.get(i);
+            ObjectMeta metadata = pod.getMetadata();
+            PodSpec spec = pod.getSpec();
+            metadatas.add(metadata);
+            specs.add(spec);
+            putAll(podAnnotations, metadata.getAnnotations());
+            putAll(podLabels, metadata.getLabels());
+            putAll(nodeSelector, spec.getNodeSelector());
+            imagePullSecrets.addAll(spec.getImagePullSecrets());
+            if (spec.getTolerations() != null) {
+                combinedTolerations.addAll(spec.getTolerations());
+            }
+            for (Volume volume : spec.getVolumes()) {
+                if (volumesByName.put(volume.getName(), volume) != null && i == 0) {
+                    throw new IllegalStateException(String.format("Duplicate key %s", volume.getName()));
+                }
+            }
+            securityContext |= spec.getSecurityContext() != null;
+        }
 
-        var metadataBuilder = new PodBuilder(parent)
-                .withNewMetadataLike(parent.getMetadata()) //
+        var metadataBuilder = new PodBuilder(first)
+                .withNewMetadataLike(first.getMetadata()) //
                 .withAnnotations(podAnnotations)
-                .withLabels(podLabels);
-        if (!isNullOrEmpty(template.getMetadata().getName())) {
-            metadataBuilder.withName(template.getMetadata().getName());
-        }
-        if (!isNullOrEmpty(template.getMetadata().getNamespace())) {
-            metadataBuilder.withNamespace(template.getMetadata().getNamespace());
-        }
+                .withLabels(podLabels)
+                .withName(resolve(metadatas, ObjectMeta::getName, PodTemplateUtils::isNullOrEmpty))
+                .withNamespace(resolve(metadatas, ObjectMeta::getNamespace, PodTemplateUtils::isNullOrEmpty));
 
         var specBuilder = metadataBuilder
                 .endMetadata() //
-                .withNewSpecLike(parent.getSpec()) //
+                .withNewSpecLike(first.getSpec()) //
                 .withNodeSelector(nodeSelector) //
-                .withServiceAccount(h.resolve(PodSpec::getServiceAccount, PodTemplateUtils::isNullOrEmpty)) //
-                .withServiceAccountName(h.resolve(PodSpec::getServiceAccountName, PodTemplateUtils::isNullOrEmpty)) //
-                .withSchedulerName(h.resolve(PodSpec::getSchedulerName, PodTemplateUtils::isNullOrEmpty))
-                .withActiveDeadlineSeconds(h.resolve(PodSpec::getActiveDeadlineSeconds, Objects::isNull)) //
-                .withHostNetwork(h.resolve(PodSpec::getHostNetwork, Objects::isNull)) //
-                .withShareProcessNamespace(h.resolve(PodSpec::getShareProcessNamespace, Objects::isNull)) //
-                .withContainers(combinedContainers) //
-                .withInitContainers(combinedInitContainers) //
-                .withVolumes(combinedVolumes) //
+                .withServiceAccount(resolve(specs, PodSpec::getServiceAccount, PodTemplateUtils::isNullOrEmpty)) //
+                .withServiceAccountName(
+                        resolve(specs, PodSpec::getServiceAccountName, PodTemplateUtils::isNullOrEmpty)) //
+                .withSchedulerName(resolve(specs, PodSpec::getSchedulerName, PodTemplateUtils::isNullOrEmpty))
+                .withActiveDeadlineSeconds(resolve(specs, PodSpec::getActiveDeadlineSeconds, Objects::isNull)) //
+                .withHostNetwork(resolve(specs, PodSpec::getHostNetwork, Objects::isNull)) //
+                .withShareProcessNamespace(resolve(specs, PodSpec::getShareProcessNamespace, Objects::isNull)) //
+                .withContainers(combineContainers(specs, PodSpec::getContainers)) //
+                .withInitContainers(combineContainers(specs, PodSpec::getInitContainers)) //
+                .withVolumes(new ArrayList<>(volumesByName.values())) //
                 .withTolerations(combinedTolerations) //
                 .withImagePullSecrets(new ArrayList<>(imagePullSecrets));
 
         // Security context
-        if (template.getSpec().getSecurityContext() != null || parent.getSpec().getSecurityContext() != null) {
+        if (securityContext) {
             specBuilder
                     .editOrNewSecurityContext()
-                    .withRunAsUser(
-                            template.getSpec().getSecurityContext() != null
-                                            && template.getSpec()
-                                                            .getSecurityContext()
-                                                            .getRunAsUser()
-                                                    != null
-                                    ? template.getSpec().getSecurityContext().getRunAsUser()
-                                    : (parent.getSpec().getSecurityContext() != null
-                                                    && parent.getSpec()
-                                                                    .getSecurityContext()
-                                                                    .getRunAsUser()
-                                                            != null
-                                            ? parent.getSpec()
-                                                    .getSecurityContext()
-                                                    .getRunAsUser()
-                                            : null))
-                    .withRunAsGroup(
-                            template.getSpec().getSecurityContext() != null
-                                            && template.getSpec()
-                                                            .getSecurityContext()
-                                                            .getRunAsGroup()
-                                                    != null
-                                    ? template.getSpec().getSecurityContext().getRunAsGroup()
-                                    : (parent.getSpec().getSecurityContext() != null
-                                                    && parent.getSpec()
-                                                                    .getSecurityContext()
-                                                                    .getRunAsGroup()
-                                                            != null
-                                            ? parent.getSpec()
-                                                    .getSecurityContext()
-                                                    .getRunAsGroup()
-                                            : null))
+                    .withRunAsUser(lastNonNull(specs, PodSecurityContext::getRunAsUser))
+                    .withRunAsGroup(lastNonNull(specs, PodSecurityContext::getRunAsGroup))
                     .endSecurityContext();
         }
 
-        // podTemplate.setLabel(label);
-        //        podTemplate.setEnvVars(combineEnvVars(parent, template));
-        //        podTemplate.setWorkspaceVolume(workspaceVolume);
-        //        podTemplate.setNodeProperties(toolLocationNodeProperties);
-        //        podTemplate.setNodeUsageMode(nodeUsageMode);
-        //        podTemplate.setYaml(template.getYaml() == null ? parent.getYaml() : template.getYaml());
-
         Pod pod = specBuilder.endSpec().build();
         LOGGER.finest(() -> "Pods combined: " + Serialization2.asYaml(pod));
         return pod;
     }
 
+    /**
+     * Resolves a field according to hierarchy, the last item not using the default value wins.
+     * @return the value of the last item not using the default value, or the value of the first item
+     */
+    private static <P, T> T resolve(List<P> items, Function<P, T> getter, Predicate<T> isDefaultValue) {
+        for (int i = items.size() - 1; i > 0; i--) {
+            T value = getter.apply(items.get(i));
+            if (!isDefaultValue.test(value)) {
+                return value;
+            }
+        }
+        return getter.apply(items.get(0));
+    }
+
+    @CheckForNull
+    private static Long lastNonNull(List<PodSpec> specs, Function<PodSecurityContext, Long> getter) {
+        for (int i = specs.size() - 1; i >= 0; i--) {
+            PodSecurityContext securityContext = specs.get(i).getSecurityContext();
+            if (securityContext != null && getter.apply(securityContext) != null) {
+                return getter.apply(securityContext);
+            }
+        }
+        return null;
+    }
+
+    private static <K, V> void putAll(Map<K, V> target, @CheckForNull Map<K, V> source) {
+        if (source != null) {
+            target.putAll(source);
+        }
+    }
+
     @NonNull
-    private static List<Container> combineContainers(List<Container> parent, List<Container> child) {
+    private static List<Container> combineContainers(
+            List<PodSpec> specs, Function<PodSpec, List<Container>> containersGetter) {
         LinkedHashMap<String, Container> combinedContainers = new LinkedHashMap<>(); // Need to retain insertion order
-        Map<String, Container> parentContainers =
-                parent.stream().collect(toMap(Container::getName, c -> c, throwingMerger(), LinkedHashMap::new));
-        Map<String, Container> childContainers = child.stream()
-                .collect(toMap(
-                        Container::getName,
-                        c -> combine(parentContainers.get(c.getName()), c),
-                        throwingMerger(),
-                        LinkedHashMap::new));
-        combinedContainers.putAll(parentContainers);
-        combinedContainers.putAll(childContainers);
+        Set<String> names = new HashSet<>();
+        for (PodSpec spec : specs) {
+            names.clear();
+            for (Container c : containersGetter.apply(spec)) {
+                if (!names.add(c.getName())) {
+                    throw new IllegalStateException(String.format("Duplicate key %s", c.getName()));
+                }
+                combinedContainers.put(c.getName(), combine(combinedContainers.get(c.getName()), c));
+            }
+        }
         return new ArrayList<>(combinedContainers.values());
     }
 
-    private static List<Volume> combineVolumes(@NonNull List<Volume> volumes1, @NonNull List<Volume> volumes2) {
-        Map<String, Volume> volumesByName =
-                volumes1.stream().collect(Collectors.toMap(Volume::getName, Function.identity()));
-        volumes2.forEach(v -> volumesByName.put(v.getName(), v));
-        return new ArrayList<>(volumesByName.values());
-    }
-
     /**
      * Combines a {@link PodTemplate} with its parent.
      * @param parent        The parent container template (nullable).
@@ -677,8 +689,13 @@ public class PodTemplateUtils {
             LOGGER.log(Level.WARNING, "[JENKINS-57116] Trying to parse invalid yaml: \"{0}\"", yaml);
             s = "{}";
         }
+        // parsed fragments are shared by the cache, callers get their own copy to modify
+        return Serialization2.copy(PARSED_YAMLS.get(s, PodTemplateUtils::doParseFromYaml), Pod.class);
+    }
+
+    private static Pod doParseFromYaml(String yaml) {
         Pod podFromYaml;
-        try (InputStream is = new ByteArrayInputStream(s.getBytes(UTF_8))) {
+        try (InputStream is = new ByteArrayInputStream(yaml.getBytes(UTF_8))) {
             podFromYaml = Serialization2.unmarshal(is, Pod.class);
             //            podFromYaml = new KubernetesSerialization().unmarshal(is, Pod.class);
         } catch (IOException e) {
@@ -1,9 +1,11 @@
 package org.csanchez.jenkins.plugins.kubernetes;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -44,6 +46,24 @@ public final class Serialization2 {
         }
     }
 
+    /**
+     * Deep copy a model object, without going through its text representation.
+     * @param model the object to copy
+     * @param type the type of the copy
+     * @return a copy sharing no mutable state with the given object
+     */
+    @NonNull
+    public static <T extends KubernetesResource> T copy(@NonNull T model, @NonNull Class<T> type) {
+        try (TokenBuffer buffer = new TokenBuffer(objectMapper, false)) {
+            objectMapper.writeValue(buffer, model);
+            try (JsonParser parser = buffer.asParser()) {
+                return objectMapper.readValue(parser, type);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @NonNull
     public static String asYaml(@CheckForNull Object model) {
         if (model != null) {
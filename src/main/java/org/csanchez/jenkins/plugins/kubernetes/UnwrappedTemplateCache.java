@@ -0,0 +1,149 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jenkins.metrics.api.Metrics;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Cache of the pod templates unwrapped by {@code PodTemplateUtils.unwrap}.
+ * <p>Entries are keyed by template id and defaults provider template, and only reused if the template and its
+ * parents are the same instances, at the same version, as when the entry was computed. Changes made to the nested
+ * objects of a template without going through its setters are not noticed, the owner of the templates invalidates the
+ * entries when they are replaced. Hits and misses are counted in {@link MetricNames#UNWRAP_CACHE_HITS} and
+ * {@link MetricNames#UNWRAP_CACHE_MISSES}.
+ */
+@Restricted(NoExternalUse.class)
+public final class UnwrappedTemplateCache {
+
+    private static final long MAXIMUM_SIZE =
+            SystemProperties.getLong(UnwrappedTemplateCache.class.getName() + ".maximumSize", 1000L);
+
+    private final Cache<String, Entry> entries = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    /**
+     * Unwraps a pod template, reusing a previous result if its hierarchy did not change.
+     * @param template the template to unwrap
+     * @param defaultsProviderTemplate the name of the template that provides the default values
+     * @param allTemplates all the known templates
+     * @return the unwrapped template
+     */
+    @CheckForNull
+    public PodTemplate unwrap(
+            @CheckForNull PodTemplate template,
+            @CheckForNull String defaultsProviderTemplate,
+            @NonNull Collection<PodTemplate> allTemplates) {
+        if (template == null || !hasParents(template, defaultsProviderTemplate)) {
+            return PodTemplateUtils.unwrap(template, defaultsProviderTemplate, allTemplates);
+        }
+        String key = template.getId() + "|" + defaultsProviderTemplate;
+        List<PodTemplate> hierarchy = new ArrayList<>();
+        hierarchy.add(template);
+        collectParents(template, defaultsProviderTemplate, allTemplates, hierarchy);
+        long[] versions = versions(hierarchy);
+
+        Entry entry = entries.getIfPresent(key);
+        if (entry != null && entry.isFor(hierarchy, versions)) {
+            Metrics.metricRegistry().counter(MetricNames.UNWRAP_CACHE_HITS).inc();
+            return entry.result;
+        }
+        Metrics.metricRegistry().counter(MetricNames.UNWRAP_CACHE_MISSES).inc();
+        PodTemplate result = PodTemplateUtils.unwrap(template, defaultsProviderTemplate, allTemplates);
+        entries.put(key, new Entry(hierarchy, versions, result));
+        return result;
+    }
+
+    /**
+     * Drop the cached entries of a template.
+     * @param template the template
+     */
+    public void invalidate(@NonNull PodTemplate template) {
+        String prefix = template.getId() + "|";
+        entries.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Drop all cached entries.
+     */
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    private static boolean hasParents(PodTemplate template, @CheckForNull String defaultsProviderTemplate) {
+        return Util.fixEmpty(defaultsProviderTemplate) != null || Util.fixEmpty(template.getInheritFrom()) != null;
+    }
+
+    /**
+     * Collect the parents of a template in the order they are combined by unwrap.
+     * Templates inheriting from themselves are not supported by unwrap either.
+     */
+    private static void collectParents(
+            PodTemplate template,
+            @CheckForNull String defaultsProviderTemplate,
+            Collection<PodTemplate> allTemplates,
+            List<PodTemplate> hierarchy) {
+        if (!hasParents(template, defaultsProviderTemplate)) {
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        if (Util.fixEmpty(defaultsProviderTemplate) != null) {
+            names.add(defaultsProviderTemplate);
+        }
+        if (Util.fixEmpty(template.getInheritFrom()) != null) {
+            names.addAll(List.of(template.getInheritFrom().split(" +")));
+        }
+        for (String name : names) {
+            PodTemplate parent = PodTemplateUtils.getTemplateByName(name, allTemplates);
+            // keep track of missing parents too, they may be added later
+            hierarchy.add(parent);
+            if (parent != null) {
+                collectParents(parent, null, allTemplates, hierarchy);
+            }
+        }
+    }
+
+    private static long[] versions(List<PodTemplate> hierarchy) {
+        long[] versions = new long[hierarchy.size()];
+        for (int i = 0; i < versions.length; i++) {
+            PodTemplate t = hierarchy.get(i);
+            versions[i] = t == null ? -1 : t.getVersion();
+        }
+        return versions;
+    }
+
+    private static final class Entry {
+        private final List<PodTemplate> hierarchy;
+        private final long[] versions;
+        private final PodTemplate result;
+
+        Entry(List<PodTemplate> hierarchy, long[] versions, PodTemplate result) {
+            this.hierarchy = hierarchy;
+            this.versions = versions;
+            this.result = result;
+        }
+
+        boolean isFor(List<PodTemplate> otherHierarchy, long[] otherVersions) {
+            if (otherHierarchy.size() != hierarchy.size()) {
+                return false;
+            }
+            for (int i = 0; i < hierarchy.size(); i++) {
+                if (otherHierarchy.get(i) != hierarchy.get(i) || otherVersions[i] != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
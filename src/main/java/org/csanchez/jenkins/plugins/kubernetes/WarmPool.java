@@ -0,0 +1,228 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Descriptor;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.TaskListener;
+import hudson.slaves.RetentionStrategy;
+import hudson.slaves.SlaveComputer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.metrics.api.Metrics;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Keeps idle agents ready for the pod templates that enable it, so that builds do not wait for a pod to be scheduled
+ * and its agent to connect.
+ * <p>The pool of a template is refilled up to {@link PodTemplate#getWarmPoolMax()} agents while the template is used,
+ * and scaled down to {@link PodTemplate#getWarmPoolMin()} agents once it has not been used for a quiet period.
+ * Agents of the pool are registered in {@link KubernetesProvisioningLimits} like any other agent.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class WarmPool extends AsyncPeriodicWork {
+    private static final Logger LOGGER = Logger.getLogger(WarmPool.class.getName());
+
+    private static final long RECURRENCE_PERIOD =
+            SystemProperties.getLong(WarmPool.class.getName() + ".recurrencePeriod", 30L);
+
+    /**
+     * Time in minutes without any build taking an agent of the pool before scaling it down.
+     */
+    private static final long QUIET_PERIOD =
+            TimeUnit.MINUTES.toMillis(SystemProperties.getLong(WarmPool.class.getName() + ".quietPeriod", 10L));
+
+    /**
+     * Last time an agent of the pool was used, by pod template id.
+     */
+    private final ConcurrentMap<String, Long> lastUsed = new ConcurrentHashMap<>();
+
+    public WarmPool() {
+        super("Kubernetes warm pool");
+    }
+
+    /**
+     * @return the singleton instance
+     */
+    public static WarmPool get() {
+        return ExtensionList.lookupSingleton(WarmPool.class);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return TimeUnit.SECONDS.toMillis(RECURRENCE_PERIOD);
+    }
+
+    /**
+     * Records that a build took an agent of the pool of a template.
+     * @param templateId the id of the pod template
+     */
+    void used(@NonNull String templateId) {
+        lastUsed.put(templateId, System.currentTimeMillis());
+    }
+
+    /**
+     * @return the number of idle agents to keep for the template at the given time
+     */
+    int getTarget(@NonNull PodTemplate template, long now) {
+        Long used = lastUsed.get(template.getId());
+        return used != null && now - used < QUIET_PERIOD ? template.getWarmPoolMax() : template.getWarmPoolMin();
+    }
+
+    static boolean isWarmPoolAgent(@NonNull KubernetesSlave node) {
+        return node.getRetentionStrategy() instanceof WarmPoolRetentionStrategy;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        Jenkins jenkins = Jenkins.get();
+        // agents of the pools that did not take a build yet, by pod template id
+        Map<String, List<KubernetesSlave>> available = new HashMap<>();
+        // agents that disconnected or failed to launch
+        List<KubernetesSlave> offline = new ArrayList<>();
+        for (Node n : jenkins.getNodes()) {
+            if (n instanceof KubernetesSlave && isWarmPoolAgent((KubernetesSlave) n)) {
+                KubernetesSlave node = (KubernetesSlave) n;
+                SlaveComputer computer = node.getComputer();
+                if (computer != null && computer.isOffline() && !computer.isConnecting()) {
+                    offline.add(node);
+                } else if (computer == null
+                        || computer.isOffline()
+                        || (computer.isIdle() && computer.isAcceptingTasks())) {
+                    available.computeIfAbsent(node.getTemplateId(), k -> new ArrayList<>()).add(node);
+                }
+            }
+        }
+        for (KubernetesSlave agent : offline) {
+            LOGGER.log(Level.FINE, () -> "Removing offline agent " + agent.getNodeName() + " from the warm pool");
+            if (!terminate(agent)) {
+                return;
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (KubernetesCloud cloud : jenkins.clouds.getAll(KubernetesCloud.class)) {
+            for (PodTemplate template : cloud.getTemplates()) {
+                if (!template.isWarmPoolEnabled()) {
+                    continue;
+                }
+                List<KubernetesSlave> agents = available.remove(template.getId());
+                int size = agents != null ? agents.size() : 0;
+                int target = getTarget(template, now);
+                if (size < target) {
+                    fill(cloud, template, target - size);
+                } else if (size > target) {
+                    drain(agents, size - target);
+                }
+            }
+        }
+        // pools that were disabled or whose template was removed
+        available.values().forEach(agents -> drain(agents, agents.size()));
+    }
+
+    private void fill(KubernetesCloud cloud, PodTemplate template, int count) {
+        LOGGER.log(Level.FINE, () -> "Adding " + count + " agents to the warm pool of " + template.getName());
+        int added = addAgents(cloud, template, count, () -> new WarmPoolRetentionStrategy(cloud.getRetentionTimeout()));
+        Metrics.metricRegistry().counter(MetricNames.WARM_POOL_PROVISIONED).inc(added);
+    }
+
+    /**
+     * Adds agents ahead of builds, within the limits of the cloud and pod template.
+     * @param cloud the cloud to add the agents to
+     * @param template the pod template of the agents
+     * @param count the number of agents to add
+     * @param retentionStrategy the retention strategy of the agents, or the default one of the template if it
+     * returns null
+     * @return the number of agents that were added
+     */
+    static int addAgents(
+            KubernetesCloud cloud, PodTemplate template, int count, Supplier<RetentionStrategy<?>> retentionStrategy) {
+        KubernetesProvisioningLimits limits = KubernetesProvisioningLimits.get();
+        PodTemplate unwrappedTemplate = cloud.getUnwrappedTemplate(template);
+        for (int i = 0; i < count; i++) {
+            if (!limits.register(cloud, template, 1)) {
+                LOGGER.log(Level.FINE, () -> "Limits reached, cannot add agents for " + template.getName());
+                return i;
+            }
+            try {
+                KubernetesSlave agent = KubernetesSlave.builder()
+                        .podTemplate(unwrappedTemplate)
+                        .cloud(cloud)
+                        .retentionStrategy(retentionStrategy.get())
+                        .build();
+                Jenkins.get().addNode(agent);
+                SlaveComputer computer = agent.getComputer();
+                if (computer != null && computer.isOffline()) {
+                    computer.connect(false);
+                }
+            } catch (IOException | Descriptor.FormException e) {
+                limits.unregister(cloud, template, 1);
+                LOGGER.log(Level.WARNING, e, () -> "Failed to add an agent for " + template.getName());
+                return i;
+            }
+        }
+        return count;
+    }
+
+    private void drain(List<KubernetesSlave> agents, int count) {
+        // only terminate connected agents, launching ones are considered again on the next run
+        List<KubernetesSlave> idle = new ArrayList<>();
+        for (KubernetesSlave agent : agents) {
+            SlaveComputer computer = agent.getComputer();
+            if (computer != null && computer.isOnline()) {
+                idle.add(agent);
+            }
+        }
+        idle.sort(Comparator.comparingLong(agent -> agent.getComputer().getIdleStartMilliseconds()));
+        for (KubernetesSlave agent : idle.subList(0, Math.min(count, idle.size()))) {
+            SlaveComputer computer = agent.getComputer();
+            boolean[] drained = {false};
+            Queue.withLock(() -> {
+                // make sure no build was assigned to the agent meanwhile
+                if (computer != null && computer.isIdle() && computer.isAcceptingTasks()) {
+                    computer.setAcceptingTasks(false);
+                    drained[0] = true;
+                }
+            });
+            if (!drained[0]) {
+                continue;
+            }
+            LOGGER.log(Level.FINE, () -> "Removing " + agent.getNodeName() + " from the warm pool");
+            if (!terminate(agent)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if interrupted
+     */
+    private static boolean terminate(KubernetesSlave agent) {
+        try {
+            agent.terminate();
+            Metrics.metricRegistry().counter(MetricNames.WARM_POOL_DRAINED).inc();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Failed to terminate " + agent.getNodeName());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+}
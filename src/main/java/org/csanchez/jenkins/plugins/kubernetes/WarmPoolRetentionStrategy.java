@@ -0,0 +1,44 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Computer;
+import hudson.model.Executor;
+import hudson.model.Queue;
+import hudson.slaves.AbstractCloudComputer;
+import org.jenkinsci.plugins.durabletask.executors.OnceRetentionStrategy;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Retention strategy of the agents of a {@link WarmPool}.
+ * <p>Idle agents are kept until the pool scales down, then each agent is terminated once it has run a task, like any
+ * other agent.
+ */
+@Restricted(NoExternalUse.class)
+public class WarmPoolRetentionStrategy extends OnceRetentionStrategy {
+
+    public WarmPoolRetentionStrategy(int idleMinutes) {
+        super(idleMinutes);
+    }
+
+    @Override
+    public long check(@NonNull AbstractCloudComputer c) {
+        if (c.isOnline() && c.isIdle() && c.isAcceptingTasks()) {
+            // scaled down by the warm pool
+            return 1;
+        }
+        return super.check(c);
+    }
+
+    @Override
+    public void taskAccepted(Executor executor, Queue.Task task) {
+        super.taskAccepted(executor, task);
+        Computer computer = executor.getOwner();
+        if (computer instanceof KubernetesComputer) {
+            KubernetesSlave node = ((KubernetesComputer) computer).getNode();
+            if (node != null) {
+                WarmPool.get().used(node.getTemplateId());
+            }
+        }
+    }
+}
@@ -45,14 +45,17 @@ import java.io.PrintStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -61,6 +64,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.output.NullPrintStream;
 import org.apache.commons.io.output.TeeOutputStream;
 import org.csanchez.jenkins.plugins.kubernetes.ContainerTemplate;
 import org.csanchez.jenkins.plugins.kubernetes.KubernetesSlave;
@@ -104,13 +108,29 @@ public class ContainerExecDecorator extends LauncherDecorator implements Seriali
     private static final int STDIN_BUFFER_SIZE =
             Integer.getInteger(ContainerExecDecorator.class.getName() + ".stdinBufferSize", 16 * 1024);
     /**
-     * time in milliseconds to wait for checking whether the process immediately returned
+     * time in milliseconds to wait for checking whether the process immediately returned, for shells that do not
+     * answer a handshake
      */
     public static final int COMMAND_FINISHED_TIMEOUT_MS = 200;
+    /**
+     * Run the commands of unix containers in shells kept open between commands instead of opening a new exec
+     * connection for each of them.
+     */
+    private static final boolean PERSISTENT_SESSIONS =
+            Boolean.getBoolean(ContainerExecDecorator.class.getName() + ".persistentSessions");
+    /**
+     * Maximum number of idle shell sessions kept open per {@code container} block, sessions handed back above it are
+     * closed.
+     */
+    private static final int MAX_IDLE_SESSIONS =
+            Integer.getInteger(ContainerExecDecorator.class.getName() + ".maxIdleSessions", 2);
 
     @SuppressFBWarnings(value = "SE_TRANSIENT_FIELD_NOT_RESTORED", justification = "not needed on deserialization")
     private transient List<Closeable> closables;
 
+    @SuppressFBWarnings(value = "SE_TRANSIENT_FIELD_NOT_RESTORED", justification = "not needed on deserialization")
+    private transient Deque<ContainerExecSession> idleSessions;
+
     private String containerName;
     private EnvironmentExpander environmentExpander;
     private EnvVars globalVars;
@@ -395,6 +415,9 @@ public class ContainerExecDecorator extends LauncherDecorator implements Seriali
                     boolean[] masks,
                     String... commands)
                     throws IOException {
+                if (PERSISTENT_SESSIONS && launcher.isUnix()) {
+                    return doLaunchInSession(quiet, cmdEnvs, outputForCaller, pwd, masks, commands);
+                }
                 long startMethod = System.nanoTime();
 
                 PrintStream printStream;
@@ -446,6 +469,187 @@ public class ContainerExecDecorator extends LauncherDecorator implements Seriali
                     closables = new ArrayList<>();
                 }
 
+                // Counted down once the shell answers the handshake or the connection closes
+                CountDownLatch ready = new CountDownLatch(1);
+                HandshakeOutputStream handshake = null;
+                if (launcher.isUnix()) {
+                    handshake = new HandshakeOutputStream(stream, ready);
+                    stream = handshake;
+                }
+                ExecWatchWrapper watchWrapper = openExec(sh, stream, ready::countDown);
+
+                ExecWatch watch = watchWrapper.getExecWatch();
+                final AtomicBoolean alive = watchWrapper.getAlive();
+                final CountDownLatch finished = watchWrapper.getFinished();
+
+                try {
+                    OutputStream stdin = watch.getInput();
+                    PrintStream in = new PrintStream(stdin, true, StandardCharsets.UTF_8);
+                    if (handshake != null) {
+                        in.print("echo " + handshake.getSentinel() + newLine(false));
+                        if (!ready.await(WEBSOCKET_CONNECTION_TIMEOUT, TimeUnit.SECONDS)) {
+                            LOGGER.log(Level.FINE, "No answer from the shell in container {0}", containerName);
+                            launcher.getListener()
+                                    .getLogger()
+                                    .printf(
+                                            "WARNING: No answer from the shell in container %s after %d seconds, "
+                                                    + "sending the command anyway%n",
+                                            containerName,
+                                            WEBSOCKET_CONNECTION_TIMEOUT);
+                        }
+                    } else {
+                        // Depends on the ping time with the Kubernetes API server
+                        // Not fully satisfied with this solution because it can delay the execution
+                        finished.await(COMMAND_FINISHED_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    }
+                    if (finished.getCount() == 0) {
+                        launcher.getListener()
+                                .error(
+                                        "Process exited immediately after creation. See output below%n%s",
+                                        stdout.toString(StandardCharsets.UTF_8.name()));
+                        throw new AbortException(
+                                "Process exited immediately after creation. Check logs above for more details.");
+                    }
+                    toggleStdout.disable();
+                    if (!launcher.isUnix()) {
+                        in.print("@echo off");
+                        in.print(newLine(true));
+                    }
+                    if (pwd != null) {
+                        // We need to get into the project workspace.
+                        // The workspace is not known in advance, so we have to execute a cd command.
+                        in.printf("cd \"%s\"", pwd);
+                        in.print(newLine(!launcher.isUnix()));
+                    }
+
+                    EnvVars envVars = buildEnvVars(cmdEnvs);
+
+                    LOGGER.log(Level.FINEST, "Launching with env vars: {0}", envVars.toString());
+
+                    setupEnvironmentVariable(envVars, in, !launcher.isUnix());
+                    if (!launcher.isUnix() && toggleOutputForCaller != null) {
+                        // Windows welcome message should not be sent to the caller as it is a side-effect of calling
+                        // the wrapping cmd.exe
+                        // Microsoft Windows [Version 10.0.17763.2686]
+                        // (c) 2018 Microsoft Corporation. All rights reserved.
+                        //
+                        // C:\>
+                        stream.flush();
+                        long beginning = System.currentTimeMillis();
+                        // watch for the prompt character
+                        while (!dryRunCaller
+                                .toString(StandardCharsets.UTF_8.name())
+                                .contains(">")) {
+                            Thread.sleep(100);
+                        }
+                        LOGGER.log(
+                                Level.FINEST,
+                                "Windows prompt printed after " + (System.currentTimeMillis() - beginning) + " ms");
+                    }
+                    // We don't need to capture output anymore
+                    if (toggleDryRunCaller != null) {
+                        toggleDryRunCaller.disable();
+                    }
+                    // Clear any captured bytes
+                    if (dryRunCaller != null) {
+                        dryRunCaller.reset();
+                    }
+                    if (toggleOutputForCaller != null) {
+                        toggleOutputForCaller.enable();
+                    }
+                    doExec(in, !launcher.isUnix(), printStream, masks, commands);
+
+                    LOGGER.fine(() -> "Created process inside pod: [" + getPodName() + "], container: [" + containerName
+                            + "]" + "[" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startMethod) + " ms]");
+                    ContainerExecProc proc = new ContainerExecProc(watch, alive, finished, stdin, printStream);
+                    closables.add(proc);
+                    return proc;
+                } catch (InterruptedException ie) {
+                    closeWatch(watch);
+                    throw new InterruptedIOException(ie.getMessage());
+                } catch (RuntimeException e) {
+                    closeWatch(watch);
+                    throw e;
+                }
+            }
+
+            private Proc doLaunchInSession(
+                    boolean quiet,
+                    String[] cmdEnvs,
+                    OutputStream outputForCaller,
+                    FilePath pwd,
+                    boolean[] masks,
+                    String... commands)
+                    throws IOException {
+                long startMethod = System.nanoTime();
+
+                // Do not send this command to the output when in quiet mode
+                PrintStream printStream =
+                        quiet ? NullPrintStream.NULL_PRINT_STREAM : launcher.getListener().getLogger();
+                OutputStream stream = printStream;
+                // Send to proc caller as well if they sent one
+                if (outputForCaller != null && !outputForCaller.equals(printStream)) {
+                    stream = new TeeOutputStream(outputForCaller, stream);
+                }
+
+                try {
+                    ContainerExecSession session = pollIdleSession();
+                    if (session == null) {
+                        session = openSession();
+                    }
+                    printStream.println("Executing " + getShell() + " script inside container " + containerName
+                            + " of pod " + getPodName());
+                    EnvVars envVars = buildEnvVars(cmdEnvs);
+                    LOGGER.log(Level.FINEST, "Launching with env vars: {0}", envVars.toString());
+                    Proc proc = session.start(stream, envVars, in -> {
+                        if (pwd != null) {
+                            in.printf("cd \"%s\"", pwd);
+                            in.print(newLine(false));
+                        }
+                        doExec(in, false, printStream, masks, commands);
+                    });
+                    LOGGER.fine(() -> "Started command in shell session of pod: [" + getPodName()
+                            + "], container: [" + containerName + "]" + "["
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startMethod) + " ms]");
+                    return proc;
+                } catch (InterruptedException ie) {
+                    throw new InterruptedIOException(ie.getMessage());
+                }
+            }
+
+            private ContainerExecSession openSession() throws IOException, InterruptedException {
+                ContainerExecSession.Output output = ContainerExecSession.newOutput();
+                ExecWatchWrapper watchWrapper = openExec(new String[] {getShell()}, output, output::closed);
+                ContainerExecSession session = new ContainerExecSession(
+                        watchWrapper.getExecWatch(),
+                        watchWrapper.getAlive(),
+                        watchWrapper.getFinished(),
+                        output,
+                        ContainerExecDecorator.this::offerIdleSession);
+                if (!session.handshake(WEBSOCKET_CONNECTION_TIMEOUT, TimeUnit.SECONDS)) {
+                    throw new AbortException("Shell session exited or did not answer after creation in container "
+                            + containerName + " of pod " + getPodName());
+                }
+                synchronized (ContainerExecDecorator.this) {
+                    if (closables == null) {
+                        closables = new ArrayList<>();
+                    }
+                    closables.add(session);
+                }
+                session.keepAlive();
+                return session;
+            }
+
+            private String getShell() {
+                return shell != null ? shell : "sh";
+            }
+
+            /**
+             * Opens an exec connection to the container, retrying on websocket failures.
+             * @param onFinished called when the connection is closed, if not null
+             */
+            private ExecWatchWrapper openExec(String[] sh, OutputStream stream, Runnable onFinished)
+                    throws IOException {
                 int attempts = 0;
                 ExecWatchWrapper watchWrapper = null;
                 while (watchWrapper == null && attempts < WEBSOCKET_CONNECTION_MAX_RETRY) {
@@ -499,6 +703,9 @@ public class ContainerExecDecorator extends LauncherDecorator implements Seriali
                                                     "onFailure called but latch already finished. This may be a bug in the kubernetes-plugin");
                                         }
                                         finished.countDown();
+                                        if (onFinished != null) {
+                                            onFinished.run();
+                                        }
                                     }
 
                                     @Override
@@ -515,6 +722,9 @@ public class ContainerExecDecorator extends LauncherDecorator implements Seriali
                                                     "onClose called but latch already finished. This indicates a bug in the kubernetes-plugin");
                                         }
                                         finished.countDown();
+                                        if (onFinished != null) {
+                                            onFinished.run();
+                                        }
                                     }
                                 })
                                 .exec(sh);
@@ -565,105 +775,7 @@ public class ContainerExecDecorator extends LauncherDecorator implements Seriali
                     throw new AbortException("Failed to start websocket connection after " + attempts
                             + " attempts. Check logs above for more details.");
                 }
-
-                ExecWatch watch = watchWrapper.getExecWatch();
-                final AtomicBoolean alive = watchWrapper.getAlive();
-                final CountDownLatch finished = watchWrapper.getFinished();
-
-                try {
-                    // Depends on the ping time with the Kubernetes API server
-                    // Not fully satisfied with this solution because it can delay the execution
-                    if (finished.await(COMMAND_FINISHED_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
-                        launcher.getListener()
-                                .error(
-                                        "Process exited immediately after creation. See output below%n%s",
-                                        stdout.toString(StandardCharsets.UTF_8.name()));
-                        throw new AbortException(
-                                "Process exited immediately after creation. Check logs above for more details.");
-                    }
-                    toggleStdout.disable();
-                    OutputStream stdin = watch.getInput();
-                    PrintStream in = new PrintStream(stdin, true, StandardCharsets.UTF_8);
-                    if (!launcher.isUnix()) {
-                        in.print("@echo off");
-                        in.print(newLine(true));
-                    }
-                    if (pwd != null) {
-                        // We need to get into the project workspace.
-                        // The workspace is not known in advance, so we have to execute a cd command.
-                        in.printf("cd \"%s\"", pwd);
-                        in.print(newLine(!launcher.isUnix()));
-                    }
-
-                    EnvVars envVars = new EnvVars();
-
-                    // get global vars here, run the export first as they'll get overwritten.
-                    if (globalVars != null) {
-                        envVars.overrideAll(globalVars);
-                    }
-
-                    if (rcEnvVars != null) {
-                        envVars.overrideAll(rcEnvVars);
-                    }
-
-                    if (environmentExpander != null) {
-                        environmentExpander.expand(envVars);
-                    }
-
-                    // setup specific command envs passed into cmd
-                    if (cmdEnvs != null) {
-                        for (String cmdEnv : cmdEnvs) {
-                            envVars.addLine(cmdEnv);
-                        }
-                    }
-
-                    LOGGER.log(Level.FINEST, "Launching with env vars: {0}", envVars.toString());
-
-                    setupEnvironmentVariable(envVars, in, !launcher.isUnix());
-                    if (!launcher.isUnix() && toggleOutputForCaller != null) {
-                        // Windows welcome message should not be sent to the caller as it is a side-effect of calling
-                        // the wrapping cmd.exe
-                        // Microsoft Windows [Version 10.0.17763.2686]
-                        // (c) 2018 Microsoft Corporation. All rights reserved.
-                        //
-                        // C:\>
-                        stream.flush();
-                        long beginning = System.currentTimeMillis();
-                        // watch for the prompt character
-                        while (!dryRunCaller
-                                .toString(StandardCharsets.UTF_8.name())
-                                .contains(">")) {
-                            Thread.sleep(100);
-                        }
-                        LOGGER.log(
-                                Level.FINEST,
-                                "Windows prompt printed after " + (System.currentTimeMillis() - beginning) + " ms");
-                    }
-                    // We don't need to capture output anymore
-                    if (toggleDryRunCaller != null) {
-                        toggleDryRunCaller.disable();
-                    }
-                    // Clear any captured bytes
-                    if (dryRunCaller != null) {
-                        dryRunCaller.reset();
-                    }
-                    if (toggleOutputForCaller != null) {
-                        toggleOutputForCaller.enable();
-                    }
-                    doExec(in, !launcher.isUnix(), printStream, masks, commands);
-
-                    LOGGER.fine(() -> "Created process inside pod: [" + getPodName() + "], container: [" + containerName
-                            + "]" + "[" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startMethod) + " ms]");
-                    ContainerExecProc proc = new ContainerExecProc(watch, alive, finished, stdin, printStream);
-                    closables.add(proc);
-                    return proc;
-                } catch (InterruptedException ie) {
-                    closeWatch(watch);
-                    throw new InterruptedIOException(ie.getMessage());
-                } catch (RuntimeException e) {
-                    closeWatch(watch);
-                    throw e;
-                }
+                return watchWrapper;
             }
 
             @Override
@@ -723,6 +835,31 @@ public class ContainerExecDecorator extends LauncherDecorator implements Seriali
                         .println("Attempt to gracefully kill processes finished with exit code " + exitCode);
             }
 
+            private EnvVars buildEnvVars(String[] cmdEnvs) throws IOException, InterruptedException {
+                EnvVars envVars = new EnvVars();
+
+                // get global vars here, run the export first as they'll get overwritten.
+                if (globalVars != null) {
+                    envVars.overrideAll(globalVars);
+                }
+
+                if (rcEnvVars != null) {
+                    envVars.overrideAll(rcEnvVars);
+                }
+
+                if (environmentExpander != null) {
+                    environmentExpander.expand(envVars);
+                }
+
+                // setup specific command envs passed into cmd
+                if (cmdEnvs != null) {
+                    for (String cmdEnv : cmdEnvs) {
+                        envVars.addLine(cmdEnv);
+                    }
+                }
+                return envVars;
+            }
+
             private void setupEnvironmentVariable(EnvVars vars, PrintStream out, boolean windows) throws IOException {
                 for (Map.Entry<String, String> entry : vars.entrySet()) {
                     // Check that key is bash compliant.
@@ -743,6 +880,39 @@ public class ContainerExecDecorator extends LauncherDecorator implements Seriali
         };
     }
 
+    /**
+     * @return an idle shell session that is still connected, or null if there is none
+     */
+    private synchronized ContainerExecSession pollIdleSession() {
+        while (idleSessions != null && !idleSessions.isEmpty()) {
+            ContainerExecSession session = idleSessions.pop();
+            if (session.isAlive()) {
+                return session;
+            }
+            session.close();
+        }
+        return null;
+    }
+
+    private synchronized void offerIdleSession(ContainerExecSession session) {
+        if (idleSessions == null) {
+            idleSessions = new ArrayDeque<>();
+        }
+        // sessions opened by a parallel burst are not all needed once it is over
+        idleSessions.removeIf(idle -> {
+            if (idle.isAlive()) {
+                return false;
+            }
+            idle.close();
+            return true;
+        });
+        if (idleSessions.size() >= MAX_IDLE_SESSIONS) {
+            session.close();
+            return;
+        }
+        idleSessions.push(session);
+    }
+
     private static String newLine(boolean windows) {
         return windows ? "\r\n" : "\n";
     }
@@ -791,6 +961,76 @@ public class ContainerExecDecorator extends LauncherDecorator implements Seriali
         }
     }
 
+    /**
+     * Forwards the output of a shell, except for the answer to the handshake sent before the command.
+     */
+    static class HandshakeOutputStream extends FilterOutputStream {
+        private final String sentinel = UUID.randomUUID().toString().replace("-", "");
+        private final byte[] answer = (sentinel + "\n").getBytes(StandardCharsets.US_ASCII);
+        private final CountDownLatch ready;
+        private volatile boolean answered;
+        /**
+         * Number of bytes of the answer matched so far.
+         */
+        private int matched;
+
+        HandshakeOutputStream(OutputStream out, CountDownLatch ready) {
+            super(out);
+            this.ready = ready;
+        }
+
+        String getSentinel() {
+            return sentinel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (answered) {
+                out.write(b);
+                return;
+            }
+            if (b == answer[matched]) {
+                matched++;
+                if (matched == answer.length) {
+                    answered = true;
+                    ready.countDown();
+                }
+                return;
+            }
+            if (matched > 0) {
+                out.write(answer, 0, matched);
+                matched = 0;
+                if (b == answer[0]) {
+                    matched = 1;
+                    return;
+                }
+            }
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (answered) {
+                out.write(b, off, len);
+                return;
+            }
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!answered && matched > 0) {
+                // the connection closed in the middle of what was not the answer
+                out.write(answer, 0, matched);
+                matched = 0;
+            }
+            ready.countDown();
+            super.close();
+        }
+    }
+
     private static class ToggleOutputStream extends FilterOutputStream {
         private boolean disabled;
 
@@ -837,8 +1077,8 @@ public class ContainerExecDecorator extends LauncherDecorator implements Seriali
      * Process given stream and mask as specified by the bitfield.
      * Uses space as a separator to determine which fragments to hide.
      */
-    private static class MaskOutputStream extends FilterOutputStream {
-        private static final String MASK_STRING = "********";
+    static class MaskOutputStream extends FilterOutputStream {
+        private static final byte[] MASK = "********".getBytes(StandardCharsets.US_ASCII);
 
         private final boolean[] masks;
         private static final char SEPARATOR = ' ';
@@ -861,15 +1101,45 @@ public class ContainerExecDecorator extends LauncherDecorator implements Seriali
             } else if (masks[index]) {
                 if (!wrote) {
                     wrote = true;
-                    for (char c : MASK_STRING.toCharArray()) {
-                        out.write(c);
-                    }
+                    out.write(MASK);
                 }
             } else {
                 out.write(b);
             }
         }
 
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                if (masks == null || index >= masks.length) {
+                    out.write(b, off, end - off);
+                    return;
+                }
+                int separator = off;
+                while (separator < end && !isSeparator(b[separator])) {
+                    separator++;
+                }
+                if (!masks[index]) {
+                    // the unmasked run and its separator at once
+                    out.write(b, off, Math.min(separator + 1, end) - off);
+                } else {
+                    if (separator > off && !wrote) {
+                        wrote = true;
+                        out.write(MASK);
+                    }
+                    if (separator < end) {
+                        out.write(SEPARATOR);
+                    }
+                }
+                if (separator < end) {
+                    index++;
+                    wrote = false;
+                }
+                off = separator + 1;
+            }
+        }
+
         private boolean isSeparator(int b) {
             return b == SEPARATOR;
         }
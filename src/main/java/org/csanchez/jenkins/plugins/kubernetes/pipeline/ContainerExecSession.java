@@ -0,0 +1,395 @@
+package org.csanchez.jenkins.plugins.kubernetes.pipeline;
+
+import static org.csanchez.jenkins.plugins.kubernetes.pipeline.Constants.NEWLINE;
+
+import hudson.Proc;
+import io.fabric8.kubernetes.client.dsl.ExecWatch;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import jenkins.util.Timer;
+
+/**
+ * A shell kept open in a container to run successive commands over a single exec connection.
+ * <p>Each command runs in a subshell, followed by a frame carrying its exit code that is used to split the output of
+ * the shell between commands. Commands run one at a time, the session is handed back once the frame is received.
+ */
+class ContainerExecSession implements Closeable, Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(ContainerExecSession.class.getName());
+
+    /**
+     * Start of the exit code frame, a control character that does not appear in the rest of the frame.
+     */
+    private static final byte FRAME_START = 1;
+
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    /**
+     * Prefix of the shell variables holding the value a variable had in the container before it was exported.
+     */
+    private static final String BASE_PREFIX = "_jenkins_base_";
+
+    private final ExecWatch watch;
+    private final AtomicBoolean alive;
+    private final CountDownLatch finished;
+    private final Output output;
+    private final PrintStream stdin;
+    private final Consumer<ContainerExecSession> onIdle;
+    /**
+     * Variables exported in the shell, inherited by the subshells the commands run in.
+     * <p>The value they had in the container, if any, is saved in the shell when they are first exported, and restored
+     * once a command no longer sets them.
+     */
+    private final Map<String, String> exported = new HashMap<>();
+
+    ContainerExecSession(
+            ExecWatch watch,
+            AtomicBoolean alive,
+            CountDownLatch finished,
+            Output output,
+            Consumer<ContainerExecSession> onIdle) {
+        this.watch = watch;
+        this.alive = alive;
+        this.finished = finished;
+        this.output = output;
+        this.stdin = new PrintStream(watch.getInput(), false, StandardCharsets.UTF_8);
+        this.onIdle = onIdle;
+    }
+
+    /**
+     * @return the output the exec connection of a session must write stdout and stderr to
+     */
+    static Output newOutput() {
+        return new Output(UUID.randomUUID().toString().replace("-", ""));
+    }
+
+    boolean isAlive() {
+        return alive.get() && finished.getCount() > 0;
+    }
+
+    /**
+     * Starts a command in the session.
+     * @param out where to write the output of the command
+     * @param environment the environment of the command, only the variables that changed since the previous
+     * command are sent to the shell
+     * @param script writes the command to the stdin of the shell
+     * @return the running command
+     */
+    Command start(OutputStream out, Map<String, String> environment, Script script) throws IOException {
+        return start(out, environment, script, true);
+    }
+
+    /**
+     * Waits for the shell to answer a no-op command, so that a shell exiting right away is detected as soon as the
+     * connection closes, and a working one is used as soon as it answers.
+     * @return whether the shell answered before the timeout, the session is closed otherwise
+     */
+    boolean handshake(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        Command command = start(OutputStream.nullOutputStream(), null, in -> in.print(":" + NEWLINE), false);
+        try {
+            if (command.exitCode.get(timeout, unit) == 0) {
+                return true;
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.log(Level.FINE, "No answer from the shell session", e);
+        }
+        close();
+        return false;
+    }
+
+    private synchronized Command start(
+            OutputStream out, Map<String, String> environment, Script script, boolean reusable) throws IOException {
+        Command command = new Command(out, reusable);
+        output.command = command;
+        try {
+            if (environment != null) {
+                writeEnvironment(environment);
+            }
+            stdin.print("(" + NEWLINE);
+            script.write(stdin);
+            stdin.print(") </dev/null 2>&1" + NEWLINE);
+            stdin.print("printf '\\00" + FRAME_START + "%s %d\\n' " + output.token + " $?" + NEWLINE);
+            stdin.flush();
+            if (stdin.checkError()) {
+                throw new IOException("Failed to send command to the shell session");
+            }
+        } catch (IOException e) {
+            // the shell may be left with half of a command
+            output.closed();
+            close();
+            throw e;
+        }
+        return command;
+    }
+
+    private void writeEnvironment(Map<String, String> environment) {
+        for (Iterator<String> names = exported.keySet().iterator(); names.hasNext(); ) {
+            String name = names.next();
+            if (!environment.containsKey(name)) {
+                String base = BASE_PREFIX + name;
+                stdin.print("if [ -n \"${" + base + "+x}\" ]; then" + NEWLINE);
+                stdin.print("export " + name + "=\"$" + base + "\"; unset " + base + NEWLINE);
+                stdin.print("else unset " + name + "; fi" + NEWLINE);
+                names.remove();
+            }
+        }
+        for (Map.Entry<String, String> entry : environment.entrySet()) {
+            String name = entry.getKey();
+            String value = entry.getValue();
+            // Check that key is bash compliant.
+            if (NAME.matcher(name).matches() && !value.equals(exported.get(name))) {
+                if (!exported.containsKey(name)) {
+                    // keep the value of the container, e.g. PATH or HOME, to restore it later
+                    stdin.print("if [ -n \"${" + name + "+x}\" ]; then" + NEWLINE);
+                    stdin.print(BASE_PREFIX + name + "=\"$" + name + "\"; fi" + NEWLINE);
+                }
+                stdin.print("export " + name + "='" + value.replace("'", "'\\''") + "'" + NEWLINE);
+                exported.put(name, value);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watch.close();
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "failed to close watch", e);
+        }
+    }
+
+    /**
+     * Starts sending keepalives while the session is idle.
+     */
+    void keepAlive() {
+        Timer.get().schedule(this, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Keeps the connection of an idle session alive.
+     */
+    @Override
+    public void run() {
+        if (!isAlive()) {
+            return;
+        }
+        synchronized (this) {
+            if (output.command == null) {
+                stdin.print(NEWLINE);
+                stdin.flush();
+            }
+        }
+        Timer.get().schedule(this, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Writes a command to the stdin of the shell.
+     */
+    interface Script {
+        void write(PrintStream in) throws IOException;
+    }
+
+    /**
+     * A command running in the session.
+     * <p>Its standard output and error are merged and written to the stream given to
+     * {@link ContainerExecSession#start}, they cannot be read from {@link #getStdout()} and {@link #getStderr()}. Its
+     * standard input is {@code /dev/null}, as the one of the shell carries the commands of the session.
+     */
+    class Command extends Proc {
+        private final OutputStream out;
+        private final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+        /**
+         * Whether the session can run other commands after this one.
+         */
+        private final boolean reusable;
+
+        Command(OutputStream out, boolean reusable) {
+            this.out = out;
+            this.reusable = reusable;
+        }
+
+        private void exited(int code) {
+            exitCode.complete(code);
+            if (reusable) {
+                onIdle.accept(ContainerExecSession.this);
+            }
+        }
+
+        private void failed() {
+            exitCode.complete(-1);
+        }
+
+        @Override
+        public boolean isAlive() {
+            return !exitCode.isDone();
+        }
+
+        @Override
+        public void kill() {
+            // the command cannot be interrupted without a terminal, kill the shell instead
+            close();
+            failed();
+        }
+
+        @Override
+        public int join() throws InterruptedException {
+            try {
+                return exitCode.get();
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.FINEST, "Failed to get the exit code of the command", e);
+                return -1;
+            }
+        }
+
+        /**
+         * @return an empty stream, the output is written to the stream given to {@link ContainerExecSession#start}
+         */
+        @Override
+        public InputStream getStdout() {
+            return InputStream.nullInputStream();
+        }
+
+        /**
+         * @return an empty stream, errors are merged with the output
+         */
+        @Override
+        public InputStream getStderr() {
+            return InputStream.nullInputStream();
+        }
+
+        /**
+         * @return a stream discarding what is written to it, commands of a session read their standard input from
+         * {@code /dev/null}
+         */
+        @Override
+        public OutputStream getStdin() {
+            return OutputStream.nullOutputStream();
+        }
+    }
+
+    /**
+     * Forwards the output of the shell to the running command, until the exit code frame of the command.
+     */
+    static final class Output extends OutputStream {
+        private final String token;
+        private final byte[] frame;
+        /**
+         * Number of bytes of the frame matched so far.
+         */
+        private int matched;
+
+        private boolean readingExitCode;
+        private int exitCode;
+        private volatile Command command;
+
+        Output(String token) {
+            this.token = token;
+            this.frame = ((char) FRAME_START + token + " ").getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (readingExitCode) {
+                if (b == '\n') {
+                    readingExitCode = false;
+                    Command c = command;
+                    command = null;
+                    if (c != null) {
+                        c.out.flush();
+                        c.exited(exitCode);
+                    }
+                } else if (b >= '0' && b <= '9') {
+                    exitCode = exitCode * 10 + (b - '0');
+                }
+                return;
+            }
+            if (b == frame[matched]) {
+                matched++;
+                if (matched == frame.length) {
+                    matched = 0;
+                    readingExitCode = true;
+                    exitCode = 0;
+                }
+                return;
+            }
+            if (matched > 0) {
+                // not a frame, FRAME_START only appears at the start of it
+                forward(frame, 0, matched);
+                matched = 0;
+                if (b == FRAME_START) {
+                    matched = 1;
+                    return;
+                }
+            }
+            forward(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                if (matched > 0 || readingExitCode || b[off] == FRAME_START) {
+                    write(b[off++]);
+                    continue;
+                }
+                // forward everything up to the next frame at once
+                int next = off;
+                while (next < end && b[next] != FRAME_START) {
+                    next++;
+                }
+                forward(b, off, next - off);
+                off = next;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            Command c = command;
+            if (c != null) {
+                c.out.flush();
+            }
+        }
+
+        private void forward(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            Command c = command;
+            if (c != null) {
+                c.out.write(b, off, len);
+            } else {
+                LOGGER.log(Level.FINEST, () -> "Ignoring output of the shell between commands: "
+                        + new String(b, off, len, StandardCharsets.UTF_8));
+            }
+        }
+
+        /**
+         * Called when the exec connection is closed.
+         */
+        void closed() {
+            Command c = command;
+            command = null;
+            if (c != null) {
+                c.failed();
+            }
+        }
+    }
+}
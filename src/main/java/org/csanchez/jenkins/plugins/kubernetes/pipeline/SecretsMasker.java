@@ -32,6 +32,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -43,9 +45,13 @@ import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.csanchez.jenkins.plugins.kubernetes.KubernetesApiThrottle;
+import org.csanchez.jenkins.plugins.kubernetes.KubernetesCloud;
 import org.csanchez.jenkins.plugins.kubernetes.KubernetesComputer;
 import org.csanchez.jenkins.plugins.kubernetes.KubernetesSlave;
 import org.csanchez.jenkins.plugins.kubernetes.PodTemplate;
+import org.jenkinsci.plugins.credentialsbinding.masking.SecretPatternFactory;
 import org.jenkinsci.plugins.credentialsbinding.masking.SecretPatterns;
 import org.jenkinsci.plugins.kubernetes.auth.KubernetesAuthException;
 import org.jenkinsci.plugins.workflow.log.TaskListenerDecorator;
@@ -60,18 +66,51 @@ public final class SecretsMasker extends TaskListenerDecorator {
 
     private static final long serialVersionUID = 1;
 
+    /**
+     * Only set in instances serialized by older versions.
+     */
+    @CheckForNull
     private final Pattern pattern;
 
+    /**
+     * The secrets and their encoded forms.
+     */
+    private final String[] literals;
+
+    private transient SecretsMaskingOutputStream.Matcher matcher;
+
     private SecretsMasker(Set<String> values) {
         assert !values.isEmpty();
+        this.pattern = null;
         // stored at creation time so SecretPatternFactory extensions are properly loaded
         // when/if this decorator runs at agent side (see DurableTaskStep.USE_WATCHING)
-        this.pattern = SecretPatterns.getAggregateSecretPattern(values);
+        this.literals = getEncodedForms(values);
+    }
+
+    static String[] getEncodedForms(Collection<String> values) {
+        return values.stream()
+                .filter(value -> !value.isEmpty())
+                .flatMap(value -> Stream.concat(
+                        Stream.of(value),
+                        SecretPatternFactory.all().stream()
+                                .flatMap(factory -> factory.getEncodedForms(value).stream())))
+                .distinct()
+                .toArray(String[]::new);
     }
 
     @Override
     public OutputStream decorate(OutputStream logger) throws IOException, InterruptedException {
-        return new SecretPatterns.MaskingOutputStream(logger, () -> pattern, "UTF-8");
+        if (literals == null) {
+            return new SecretPatterns.MaskingOutputStream(logger, () -> pattern, "UTF-8");
+        }
+        return new SecretsMaskingOutputStream(logger, getMatcher());
+    }
+
+    private synchronized SecretsMaskingOutputStream.Matcher getMatcher() {
+        if (matcher == null) {
+            matcher = new SecretsMaskingOutputStream.Matcher(Arrays.asList(literals));
+        }
+        return matcher;
     }
 
     @Extension
@@ -164,31 +203,34 @@ public final class SecretsMasker extends TaskListenerDecorator {
                     if (unix == null) {
                         return null;
                     }
-                    try (OutputStream errs = new LogTaskListener(LOGGER, Level.FINE).getLogger();
-                            ExecWatch exec = slave.getKubernetesCloud()
-                                    .connect()
-                                    .pods()
-                                    .inNamespace(slave.getNamespace())
-                                    .withName(slave.getPodName())
-                                    .inContainer(containerName)
-                                    .writingOutput(baos)
-                                    .writingError(errs)
-                                    .writingErrorChannel(errs)
-                                    .usingListener(new ExecListener() {
-                                        @Override
-                                        public void onFailure(Throwable t, Response response) {
-                                            semaphore.release();
-                                        }
-
-                                        @Override
-                                        public void onClose(int code, String reason) {
-                                            semaphore.release();
-                                        }
-                                    })
-                                    .exec(unix ? new String[] {"env"} : new String[] {"cmd", "/c", "set"})) {
-                        if (!semaphore.tryAcquire(10, TimeUnit.SECONDS)) {
-                            LOGGER.fine(() -> "time out trying to find environment from " + slave.getNamespace() + "/"
-                                    + slave.getPodName() + "/" + containerName);
+                    try (OutputStream errs = new LogTaskListener(LOGGER, Level.FINE).getLogger()) {
+                        KubernetesCloud cloud = slave.getKubernetesCloud();
+                        var execable = cloud.connect()
+                                .pods()
+                                .inNamespace(slave.getNamespace())
+                                .withName(slave.getPodName())
+                                .inContainer(containerName)
+                                .writingOutput(baos)
+                                .writingError(errs)
+                                .writingErrorChannel(errs)
+                                .usingListener(new ExecListener() {
+                                    @Override
+                                    public void onFailure(Throwable t, Response response) {
+                                        semaphore.release();
+                                    }
+
+                                    @Override
+                                    public void onClose(int code, String reason) {
+                                        semaphore.release();
+                                    }
+                                });
+                        String[] command = unix ? new String[] {"env"} : new String[] {"cmd", "/c", "set"};
+                        try (ExecWatch exec = cloud.getApiThrottle()
+                                .call(KubernetesApiThrottle.Priority.NORMAL, () -> execable.exec(command))) {
+                            if (!semaphore.tryAcquire(10, TimeUnit.SECONDS)) {
+                                LOGGER.fine(() -> "time out trying to find environment from " + slave.getNamespace()
+                                        + "/" + slave.getPodName() + "/" + containerName);
+                            }
                         }
                     } catch (RuntimeException | KubernetesAuthException x) {
                         LOGGER.log(
@@ -0,0 +1,224 @@
+package org.csanchez.jenkins.plugins.kubernetes.pipeline;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Masks secrets in a stream of bytes, without decoding it nor splitting it in lines.
+ * <p>All the secrets are looked for at once by an Aho-Corasick automaton, and bytes are only held back while they may
+ * be the start of a secret, so the buffer is bounded by the length of the longest secret. Overlapping and adjacent
+ * secrets are replaced by a single mask.
+ */
+class SecretsMaskingOutputStream extends FilterOutputStream {
+
+    static final byte[] MASK = "****".getBytes(StandardCharsets.US_ASCII);
+
+    private final Matcher matcher;
+    /**
+     * Bytes not written yet.
+     */
+    private final byte[] buf;
+    /**
+     * Whether each byte of {@link #buf} is part of a secret.
+     */
+    private final boolean[] masked;
+
+    private int count;
+    private int state;
+    /**
+     * Whether the last byte written was masked, so that the mask is written once for consecutive masked bytes.
+     */
+    private boolean inMask;
+
+    SecretsMaskingOutputStream(OutputStream out, Matcher matcher) {
+        super(out);
+        this.matcher = matcher;
+        this.buf = new byte[Math.max(8192, 2 * (matcher.maxLength + 1))];
+        this.masked = new boolean[buf.length];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buf.length) {
+            writeBuffer(safeCount());
+        }
+        consume((byte) b);
+        writeBuffer(safeCount());
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (count == buf.length) {
+                writeBuffer(safeCount());
+            }
+            consume(b[i]);
+        }
+        writeBuffer(safeCount());
+    }
+
+    private void consume(byte b) {
+        state = matcher.next(state, b);
+        buf[count++] = b;
+        int length = matcher.match[state];
+        if (length > 0) {
+            // the start of the secret may already be written, masked
+            Arrays.fill(masked, Math.max(0, count - length), count, true);
+        }
+    }
+
+    /**
+     * @return the number of buffered bytes whose output cannot change with the bytes to come
+     */
+    private int safeCount() {
+        // bytes before the matched prefix cannot be part of a secret found later
+        int n = Math.max(0, count - matcher.depth[state]);
+        // bytes already masked stay masked, the start of the matched prefix may even be written already
+        while (n < count && masked[n]) {
+            n++;
+        }
+        return n;
+    }
+
+    private void writeBuffer(int n) throws IOException {
+        int i = 0;
+        while (i < n) {
+            if (masked[i]) {
+                if (!inMask) {
+                    out.write(MASK);
+                    inMask = true;
+                }
+                i++;
+            } else {
+                int j = i;
+                while (j < n && !masked[j]) {
+                    j++;
+                }
+                out.write(buf, i, j - i);
+                inMask = false;
+                i = j;
+            }
+        }
+        int rest = count - n;
+        System.arraycopy(buf, n, buf, 0, rest);
+        System.arraycopy(masked, n, masked, 0, rest);
+        Arrays.fill(masked, rest, count, false);
+        count = rest;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBuffer(safeCount());
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // what is left is not a secret
+        writeBuffer(count);
+        state = 0;
+        super.close();
+    }
+
+    /**
+     * Aho-Corasick automaton over the bytes of the secrets, with the transitions of all states precomputed.
+     * <p>Bytes are mapped to the classes of the bytes appearing in the secrets, all other bytes sharing a single class,
+     * which keeps the transition table small.
+     */
+    static final class Matcher {
+        private final int[] classes = new int[256];
+        private final int alphabet;
+        private final int[] transitions;
+        /**
+         * Length of the secret prefix matched by each state.
+         */
+        private final int[] depth;
+        /**
+         * Length of the longest secret ending at each state, 0 if none.
+         */
+        private final int[] match;
+
+        private final int maxLength;
+
+        Matcher(Collection<String> secrets) {
+            List<byte[]> patterns = new ArrayList<>();
+            int size = 1;
+            int alphabet = 1;
+            int maxLength = 0;
+            for (String secret : secrets) {
+                if (secret.isEmpty()) {
+                    continue;
+                }
+                byte[] pattern = secret.getBytes(StandardCharsets.UTF_8);
+                patterns.add(pattern);
+                size += pattern.length;
+                maxLength = Math.max(maxLength, pattern.length);
+                for (byte b : pattern) {
+                    if (classes[b & 0xff] == 0) {
+                        classes[b & 0xff] = alphabet++;
+                    }
+                }
+            }
+            int[] transitions = new int[size * alphabet];
+            Arrays.fill(transitions, -1);
+            int[] depth = new int[size];
+            int[] match = new int[size];
+            int states = 1;
+            for (byte[] pattern : patterns) {
+                int s = 0;
+                for (byte b : pattern) {
+                    int i = s * alphabet + classes[b & 0xff];
+                    if (transitions[i] == -1) {
+                        depth[states] = depth[s] + 1;
+                        transitions[i] = states++;
+                    }
+                    s = transitions[i];
+                }
+                match[s] = pattern.length;
+            }
+            // breadth first, so that the transitions of the failure state are complete when it is used
+            int[] fail = new int[states];
+            int[] queue = new int[states];
+            int head = 0;
+            int tail = 0;
+            for (int c = 0; c < alphabet; c++) {
+                if (transitions[c] == -1) {
+                    transitions[c] = 0;
+                } else {
+                    queue[tail++] = transitions[c];
+                }
+            }
+            while (head < tail) {
+                int s = queue[head++];
+                for (int c = 0; c < alphabet; c++) {
+                    int i = s * alphabet + c;
+                    int f = transitions[fail[s] * alphabet + c];
+                    if (transitions[i] == -1) {
+                        transitions[i] = f;
+                    } else {
+                        int t = transitions[i];
+                        fail[t] = f;
+                        match[t] = Math.max(match[t], match[f]);
+                        queue[tail++] = t;
+                    }
+                }
+            }
+            this.alphabet = alphabet;
+            this.transitions = Arrays.copyOf(transitions, states * alphabet);
+            this.depth = Arrays.copyOf(depth, states);
+            this.match = Arrays.copyOf(match, states);
+            this.maxLength = maxLength;
+        }
+
+        int next(int state, byte b) {
+            return transitions[state * alphabet + classes[b & 0xff]];
+        }
+    }
+}
@@ -16,6 +16,9 @@
 
 package org.csanchez.jenkins.plugins.kubernetes.pod.retention;
 
+import static org.csanchez.jenkins.plugins.kubernetes.PodTemplateBuilder.LABEL_KUBERNETES_CONTROLLER;
+import static org.csanchez.jenkins.plugins.kubernetes.PodTemplateUtils.sanitizeLabel;
+
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
@@ -32,21 +35,29 @@ import hudson.model.Saveable;
 import hudson.model.TaskListener;
 import hudson.model.listeners.ItemListener;
 import hudson.model.listeners.SaveableListener;
+import hudson.slaves.Cloud;
 import hudson.slaves.ComputerListener;
 import hudson.slaves.EphemeralNode;
 import hudson.slaves.OfflineCause;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import io.fabric8.kubernetes.api.model.ContainerStateTerminated;
 import io.fabric8.kubernetes.api.model.ContainerStateWaiting;
 import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.ListOptions;
+import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
 import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.api.model.PodStatus;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.WatcherException;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -55,6 +66,12 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
@@ -63,11 +80,14 @@ import jenkins.model.Jenkins;
 import jenkins.util.Listeners;
 import jenkins.util.SystemProperties;
 import jenkins.util.Timer;
+import org.csanchez.jenkins.plugins.kubernetes.KubernetesApiThrottle;
 import org.csanchez.jenkins.plugins.kubernetes.KubernetesClientProvider;
 import org.csanchez.jenkins.plugins.kubernetes.KubernetesCloud;
 import org.csanchez.jenkins.plugins.kubernetes.KubernetesComputer;
 import org.csanchez.jenkins.plugins.kubernetes.KubernetesSlave;
+import org.csanchez.jenkins.plugins.kubernetes.KubernetesSlaveIndex;
 import org.csanchez.jenkins.plugins.kubernetes.PodUtils;
+import org.csanchez.jenkins.plugins.kubernetes.watch.PodCache;
 import org.jenkinsci.plugins.kubernetes.auth.KubernetesAuthException;
 
 /**
@@ -105,8 +125,38 @@ public class Reaper extends ComputerListener {
      */
     private final AtomicBoolean activated = new AtomicBoolean();
 
+    /**
+     * Number of clouds checked in parallel on activation.
+     */
+    private static final int REAP_PARALLELISM =
+            SystemProperties.getInteger(Reaper.class.getName() + ".reapParallelism", 4);
+
+    /**
+     * Number of pods per list request on activation.
+     */
+    private static final long REAP_LIST_PAGE_SIZE =
+            SystemProperties.getLong(Reaper.class.getName() + ".reapListPageSize", 500L);
+
+    /**
+     * Runs the listeners outside of the watch and informer threads, which must not block.
+     * A single thread keeps the events of a pod in order. The queue is unbounded, as dropping an event could leave
+     * an agent whose pod is gone.
+     */
+    private final ExecutorService listenerExecutor = new ThreadPoolExecutor(
+            1,
+            1,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            new NamingThreadFactory(new DaemonThreadFactory(), "Reaper.listeners"));
+
     private final Map<String, CloudPodWatcher> watchers = new ConcurrentHashMap<>();
 
+    /**
+     * cloud name, server and namespace -> resource version of the last pod event received, including bookmarks.
+     */
+    private final Map<String, String> resourceVersions = new ConcurrentHashMap<>();
+
     private final LoadingCache<String, Set<String>> terminationReasons =
             Caffeine.newBuilder().expireAfterAccess(1, TimeUnit.DAYS).build(k -> new ConcurrentSkipListSet<>());
 
@@ -147,43 +197,178 @@ public class Reaper extends ComputerListener {
 
     /**
      * Remove any {@link KubernetesSlave} nodes that reference Pods that don't exist.
+     * <p>Agents are checked with one paged list request per cloud and namespace, then agents that did not match any
+     * listed pod (for example pods created before the controller label was added) are checked individually.
+     * Clouds are processed in parallel.
      */
     private void reapAgents() {
         Jenkins jenkins = Jenkins.getInstanceOrNull();
         if (jenkins != null) {
-            for (Node n : new ArrayList<>(jenkins.getNodes())) {
-                if (!(n instanceof KubernetesSlave)) {
-                    continue;
+            Map<String, List<KubernetesSlave>> agentsByCloud = agentsToReap(jenkins);
+            if (agentsByCloud.isEmpty()) {
+                return;
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(
+                    Math.min(agentsByCloud.size(), REAP_PARALLELISM),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "Reaper.reapAgents"));
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (List<KubernetesSlave> agents : agentsByCloud.values()) {
+                    futures.add(executor.submit(() -> reapAgents(jenkins, agents)));
                 }
-                KubernetesSlave ks = (KubernetesSlave) n;
-                if (ks.getLauncher().isLaunchSupported()) {
-                    // Being launched, don't touch it.
-                    continue;
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException x) {
+                        LOGGER.log(Level.WARNING, "failed to do initial reap check", x.getCause());
+                    }
                 }
+            } catch (InterruptedException x) {
+                Thread.currentThread().interrupt();
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * @return agents which are not being launched, by cloud name
+     */
+    @NonNull
+    private static Map<String, List<KubernetesSlave>> agentsToReap(@NonNull Jenkins jenkins) {
+        Map<String, List<KubernetesSlave>> agentsByCloud = new HashMap<>();
+        for (Node n : new ArrayList<>(jenkins.getNodes())) {
+            if (!(n instanceof KubernetesSlave)) {
+                continue;
+            }
+            KubernetesSlave ks = (KubernetesSlave) n;
+            if (ks.getLauncher().isLaunchSupported()) {
+                // Being launched, don't touch it.
+                continue;
+            }
+            agentsByCloud.computeIfAbsent(ks.getCloudName(), k -> new ArrayList<>()).add(ks);
+        }
+        return agentsByCloud;
+    }
+
+    /**
+     * Restart the watch of a cloud after its history has expired, then check its agents for deletions that happened
+     * while it was not watched.
+     * <p>The watch is started before the agents are checked so that no deletion falls between the two.
+     * @param cloudName the cloud name
+     */
+    private void resync(@NonNull String cloudName) {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins == null) {
+            return;
+        }
+        Cloud cloud = jenkins.getCloud(cloudName);
+        if (!(cloud instanceof KubernetesCloud)) {
+            return;
+        }
+        watchCloud((KubernetesCloud) cloud);
+        List<KubernetesSlave> agents = agentsToReap(jenkins).get(cloudName);
+        if (agents != null) {
+            reapAgents(jenkins, agents);
+        }
+    }
+
+    /**
+     * Remove agents of a single cloud whose pod does not exist.
+     * @param agents agents of the same cloud
+     */
+    private static void reapAgents(@NonNull Jenkins jenkins, @NonNull List<KubernetesSlave> agents) {
+        KubernetesCloud cloud;
+        KubernetesClient client;
+        try {
+            cloud = agents.get(0).getKubernetesCloud();
+            client = cloud.connect();
+        } catch (KubernetesAuthException | IOException | RuntimeException x) {
+            LOGGER.log(
+                    Level.WARNING,
+                    x,
+                    () -> "failed to do initial reap check for cloud " + agents.get(0).getCloudName());
+            return;
+        }
+        // an agent pod is permitted to use a nondefault namespace,
+        // yet we do not want to do an unnamespaced pod list for RBAC reasons.
+        Map<String, List<KubernetesSlave>> agentsByNamespace = new HashMap<>();
+        for (KubernetesSlave ks : agents) {
+            agentsByNamespace.computeIfAbsent(ks.getNamespace(), k -> new ArrayList<>()).add(ks);
+        }
+        for (Map.Entry<String, List<KubernetesSlave>> entry : agentsByNamespace.entrySet()) {
+            Set<String> podNames = listPodNames(cloud, client, entry.getKey());
+            for (KubernetesSlave ks : entry.getValue()) {
                 String ns = ks.getNamespace();
                 String name = ks.getPodName();
+                if (podNames.contains(name)) {
+                    LOGGER.fine(() -> ns + "/" + name + " still seems to exist, OK");
+                    continue;
+                }
                 try {
-                    // TODO more efficient to do a single (or paged) list request, but tricky since there may be
-                    // multiple clouds,
-                    // and even within a single cloud an agent pod is permitted to use a nondefault namespace,
-                    // yet we do not want to do an unnamespaced pod list for RBAC reasons.
-                    // Could use a hybrid approach: first list all pods in the configured namespace for all clouds;
-                    // then go back and individually check any unmatched agents with their configured namespace.
-                    KubernetesCloud cloud = ks.getKubernetesCloud();
-                    if (cloud.connect().pods().inNamespace(ns).withName(name).get() == null) {
+                    if (cloud.getApiThrottle()
+                                    .call(
+                                            KubernetesApiThrottle.Priority.NORMAL,
+                                            () -> client.pods().inNamespace(ns).withName(name).get())
+                            == null) {
                         LOGGER.info(() -> ns + "/" + name
                                 + " seems to have been deleted, so removing corresponding Jenkins agent");
                         jenkins.removeNode(ks);
                     } else {
                         LOGGER.fine(() -> ns + "/" + name + " still seems to exist, OK");
                     }
-                } catch (KubernetesAuthException | IOException | RuntimeException x) {
+                } catch (IOException | RuntimeException x) {
                     LOGGER.log(Level.WARNING, x, () -> "failed to do initial reap check for " + ns + "/" + name);
                 }
             }
         }
     }
 
+    /**
+     * List the names of the pods created by this controller in a namespace.
+     * Reads them from the pod cache of the namespace when it is synced.
+     * @return the pod names, empty if they could not be listed
+     */
+    @NonNull
+    private static Set<String> listPodNames(
+            @NonNull KubernetesCloud cloud, @NonNull KubernetesClient client, @CheckForNull String namespace) {
+        String controllerLabel = sanitizeLabel(cloud.getJenkinsUrlOrNull());
+        if (namespace == null || controllerLabel == null) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new HashSet<>();
+        PodCache podCache = cloud.getPodCache(namespace);
+        if (podCache != null && podCache.hasSynced()) {
+            for (Pod pod : podCache.getByController(controllerLabel)) {
+                names.add(pod.getMetadata().getName());
+            }
+            return names;
+        }
+        try {
+            String continueToken = null;
+            do {
+                ListOptions options = new ListOptionsBuilder()
+                        .withLimit(REAP_LIST_PAGE_SIZE)
+                        .withContinue(continueToken)
+                        .build();
+                PodList list = cloud.getApiThrottle()
+                        .call(KubernetesApiThrottle.Priority.NORMAL, () -> client.pods()
+                                .inNamespace(namespace)
+                                .withLabel(LABEL_KUBERNETES_CONTROLLER, controllerLabel)
+                                .list(options));
+                for (Pod pod : list.getItems()) {
+                    names.add(pod.getMetadata().getName());
+                }
+                continueToken = list.getMetadata() != null ? list.getMetadata().getContinue() : null;
+            } while (continueToken != null && !continueToken.isEmpty());
+        } catch (RuntimeException x) {
+            LOGGER.log(
+                    Level.FINE, x, () -> "failed to list pods in " + namespace + ", checking agents individually");
+            return Collections.emptySet();
+        }
+        return names;
+    }
+
     /**
      * Create watchers for each configured {@link KubernetesCloud} in Jenkins and remove any existing watchers
      * for clouds that have been removed. If a {@link KubernetesCloud} client configuration property has been
@@ -215,10 +400,28 @@ public class Reaper extends ComputerListener {
         // can't use ConcurrentHashMap#computeIfAbsent because CloudPodWatcher will remove itself from the watchers
         // map on close. If an error occurs when creating the watch it would create a deadlock situation.
         CloudPodWatcher watcher = new CloudPodWatcher(kc);
-        if (!isCloudPodWatcherActive(watcher)) {
+        if (!isCloudPodWatcherActive(watcher, kc)) {
             try {
                 KubernetesClient client = kc.connect();
-                watcher.watch = client.pods().inNamespace(client.getNamespace()).watch(watcher);
+                watcher.namespace = client.getNamespace();
+                PodCache podCache = kc.getPodCache(watcher.namespace);
+                String resourceVersion = resourceVersions.get(watcher.getResourceVersionKey());
+                if (podCache != null) {
+                    // share the informer of the namespace rather than opening another watch
+                    watcher.subscription = podCache.subscribe(watcher);
+                } else if (resourceVersion != null) {
+                    // resume from the last seen event, so that nothing that happened in between is missed
+                    watcher.watch = client.pods()
+                            .inNamespace(watcher.namespace)
+                            .watch(
+                                    new ListOptionsBuilder()
+                                            .withResourceVersion(resourceVersion)
+                                            .withAllowWatchBookmarks(true)
+                                            .build(),
+                                    watcher);
+                } else {
+                    watcher.watch = client.pods().inNamespace(watcher.namespace).watch(watcher);
+                }
                 CloudPodWatcher old = watchers.put(kc.name, watcher);
                 // if another watch slipped in then make sure it stopped
                 if (old != null) {
@@ -231,6 +434,17 @@ public class Reaper extends ComputerListener {
         }
     }
 
+    /**
+     * Called when a pod cache is registered for a namespace of the given cloud, so that the cloud watch moves to the
+     * shared informer of the namespace if it is the watched one.
+     * @param kc the cloud
+     */
+    public void podCacheRegistered(@NonNull KubernetesCloud kc) {
+        if (activated.get() && isWatchingCloud(kc.name)) {
+            watchCloud(kc);
+        }
+    }
+
     /**
      * Check if the cloud is watched for Pod events.
      * @param name cloud name
@@ -246,23 +460,20 @@ public class Reaper extends ComputerListener {
 
     /**
      * Check if the given cloud pod watcher exists and is still valid. Watchers may become invalid
-     * of the kubernetes client configuration changes.
+     * of the kubernetes client configuration changes, or be replaced by a pod cache registered for their namespace.
      * @param watcher watcher to check
+     * @param kc the cloud of the watcher
      * @return true if the provided watcher already exists and is valid, false otherwise
      */
-    private boolean isCloudPodWatcherActive(@NonNull CloudPodWatcher watcher) {
+    private boolean isCloudPodWatcherActive(@NonNull CloudPodWatcher watcher, @NonNull KubernetesCloud kc) {
         CloudPodWatcher existing = watchers.get(watcher.cloudName);
-        return existing != null && existing.clientValidity == watcher.clientValidity;
+        return existing != null
+                && existing.clientValidity == watcher.clientValidity
+                && (existing.subscription != null || kc.getPodCache(existing.namespace) == null);
     }
 
-    private static Optional<KubernetesSlave> resolveNode(@NonNull Jenkins jenkins, String namespace, String name) {
-        return new ArrayList<>(jenkins.getNodes())
-                .stream()
-                        .filter(KubernetesSlave.class::isInstance)
-                        .map(KubernetesSlave.class::cast)
-                        .filter(ks ->
-                                Objects.equals(ks.getNamespace(), namespace) && Objects.equals(ks.getPodName(), name))
-                        .findFirst();
+    private static Optional<KubernetesSlave> resolveNode(String namespace, String name) {
+        return Optional.ofNullable(KubernetesSlaveIndex.get().get(namespace, name));
     }
 
     /**
@@ -276,29 +487,43 @@ public class Reaper extends ComputerListener {
     /**
      * Kubernetes pod event watcher for a Kubernetes Cloud. Notifies {@link Listener}
      * extensions on Pod events. The default Kubernetes client watch manager will
-     * attempt to reconnect on connection errors. If the watch api returns "410 Gone"
-     * then the Watch will close itself with a WatchException and this watcher will
-     * deregister itself.
+     * attempt to reconnect on connection errors, resuming from the last received resource version.
+     * If the watch api returns "410 Gone" then the Watch will close itself with a WatchException,
+     * this watcher will deregister itself and a new watch is started after checking agents again.
+     * <p>When a {@link PodCache} exists for the watched namespace, events are received from its informer instead.
      */
-    private class CloudPodWatcher implements Watcher<Pod> {
+    private class CloudPodWatcher implements Watcher<Pod>, ResourceEventHandler<Pod> {
         private final String cloudName;
+        private final String serverUrl;
         private final int clientValidity;
 
+        @CheckForNull
+        private String namespace;
+
         @CheckForNull
         private Watch watch;
 
+        @CheckForNull
+        private PodCache.Subscription subscription;
+
         CloudPodWatcher(@NonNull KubernetesCloud cloud) {
             this.cloudName = cloud.name;
+            this.serverUrl = cloud.getServerUrl();
             this.clientValidity = KubernetesClientProvider.getValidity(cloud);
         }
 
+        String getResourceVersionKey() {
+            return cloudName + "|" + serverUrl + "|" + namespace;
+        }
+
         @Override
         public void eventReceived(Action action, Pod pod) {
+            if (pod != null && pod.getMetadata() != null && pod.getMetadata().getResourceVersion() != null) {
+                resourceVersions.put(getResourceVersionKey(), pod.getMetadata().getResourceVersion());
+            }
+
             // don't send bookmark event to listeners as they don't represent change in pod state
             if (action == Action.BOOKMARK) {
-                // TODO future enhancement might be to keep track of bookmarks for better reconnect behavior. Would
-                //      likely have to track based on cloud address/namespace in case cloud was renamed or namespace
-                //      is changed.
                 return;
             }
 
@@ -316,22 +541,29 @@ public class Reaper extends ComputerListener {
 
             String ns = pod.getMetadata().getNamespace();
             String name = pod.getMetadata().getName();
-            Optional<KubernetesSlave> optionalNode = resolveNode(jenkins, ns, name);
+            Optional<KubernetesSlave> optionalNode = resolveNode(ns, name);
             if (!optionalNode.isPresent()) {
                 return;
             }
 
+            listenerExecutor.execute(() -> notifyListeners(action, optionalNode.get(), pod));
+        }
+
+        private void notifyListeners(Action action, KubernetesSlave node, Pod pod) {
             Listeners.notify(Listener.class, true, listener -> {
                 try {
-                    Set<String> terminationReasons = Reaper.this.terminationReasons.get(
-                            optionalNode.get().getNodeName());
+                    Set<String> terminationReasons = Reaper.this.terminationReasons.get(node.getNodeName());
                     listener.onEvent(
                             action,
-                            optionalNode.get(),
+                            node,
                             pod,
                             terminationReasons != null ? terminationReasons : Collections.emptySet());
                 } catch (Exception x) {
-                    LOGGER.log(Level.WARNING, "Listener " + listener + " failed for " + ns + "/" + name, x);
+                    LOGGER.log(
+                            Level.WARNING,
+                            "Listener " + listener + " failed for " + pod.getMetadata().getNamespace() + "/"
+                                    + pod.getMetadata().getName(),
+                            x);
                 }
             });
         }
@@ -345,6 +577,35 @@ public class Reaper extends ComputerListener {
                 LOGGER.info("Stopping watch for kubernetes cloud " + cloudName);
                 this.watch.close();
             }
+            if (subscription != null) {
+                LOGGER.info("Stopping pod cache subscription for kubernetes cloud " + cloudName);
+                subscription.close();
+                onClose();
+            }
+        }
+
+        @Override
+        public void onAdd(Pod pod) {
+            eventReceived(Action.ADDED, pod);
+        }
+
+        @Override
+        public void onUpdate(Pod oldPod, Pod newPod) {
+            // informer resyncs replay the cached pods, they do not represent a change in pod state
+            if (oldPod != null
+                    && oldPod.getMetadata() != null
+                    && newPod.getMetadata() != null
+                    && Objects.equals(
+                            oldPod.getMetadata().getResourceVersion(),
+                            newPod.getMetadata().getResourceVersion())) {
+                return;
+            }
+            eventReceived(Action.MODIFIED, newPod);
+        }
+
+        @Override
+        public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {
+            eventReceived(Action.DELETED, pod);
         }
 
         @Override
@@ -360,9 +621,18 @@ public class Reaper extends ComputerListener {
             // https://kubernetes.io/docs/reference/using-api/api-concepts/#410-gone-responses
             // "Gone" may be returned if the resource version requested is older than the server
             // has retained.
-            LOGGER.log(Level.WARNING, e, () -> cloudName + " watcher closed with exception");
             // remove self from watchers list
-            Reaper.this.watchers.remove(cloudName, this);
+            boolean current = Reaper.this.watchers.remove(cloudName, this);
+            if (e.isHttpGone()) {
+                // the last seen resource version can't be used anymore, start over
+                resourceVersions.remove(getResourceVersionKey());
+                if (current) {
+                    LOGGER.log(Level.INFO, () -> cloudName + " watcher history expired, restarting watch");
+                    Timer.get().submit(() -> resync(cloudName));
+                }
+            } else {
+                LOGGER.log(Level.WARNING, e, () -> cloudName + " watcher closed with exception");
+            }
         }
     }
 
@@ -0,0 +1,199 @@
+package org.csanchez.jenkins.plugins.kubernetes.watch;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import io.fabric8.kubernetes.client.informers.cache.Cache;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.csanchez.jenkins.plugins.kubernetes.PodTemplateBuilder;
+
+/**
+ * View of the agent pods of a namespace, backed by a single shared informer.
+ * <p>Allows callers to look up pods without a request to the API server, and to be notified when a given pod
+ * changes instead of polling for it. Pods are indexed by name and by controller label, so that the reaper, garbage
+ * collection and computer pages can share the same stream of pod events.
+ */
+public class PodCache implements ResourceEventHandler<Pod> {
+
+    private static final Logger LOGGER = Logger.getLogger(PodCache.class.getName());
+
+    /**
+     * Name of the index of pods by {@link PodTemplateBuilder#LABEL_KUBERNETES_CONTROLLER} label.
+     */
+    static final String CONTROLLER_INDEX = "controller";
+
+    private final String namespace;
+
+    /**
+     * pod name -> subscribers
+     */
+    private final Map<String, Set<Runnable>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * subscribers to all pod events of the namespace
+     */
+    private final Set<ResourceEventHandler<Pod>> handlers = new CopyOnWriteArraySet<>();
+
+    private volatile SharedIndexInformer<Pod> informer;
+
+    public PodCache(@NonNull String namespace) {
+        this.namespace = namespace;
+    }
+
+    /**
+     * Attach this cache to the given informer. Must be called once, before the cache is used and before the
+     * informer is started.
+     * @param informer the informer providing pods for this namespace
+     */
+    public void attach(@NonNull SharedIndexInformer<Pod> informer) {
+        informer.addIndexers(Map.of(CONTROLLER_INDEX, PodCache::controllerIndex));
+        this.informer = informer;
+        informer.addEventHandler(this);
+    }
+
+    private static List<String> controllerIndex(Pod pod) {
+        Map<String, String> labels = pod.getMetadata() != null ? pod.getMetadata().getLabels() : null;
+        String controller = labels != null ? labels.get(PodTemplateBuilder.LABEL_KUBERNETES_CONTROLLER) : null;
+        return controller != null ? List.of(controller) : Collections.emptyList();
+    }
+
+    @NonNull
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * @return true if the initial list of pods has been received.
+     */
+    public boolean hasSynced() {
+        SharedIndexInformer<Pod> i = informer;
+        return i != null && i.hasSynced();
+    }
+
+    /**
+     * Get the last known state of a pod.
+     * @param name pod name
+     * @return the pod, or null if the pod is unknown to the cache (not created yet, deleted, or cache not synced)
+     */
+    @CheckForNull
+    public Pod get(@NonNull String name) {
+        SharedIndexInformer<Pod> i = informer;
+        if (i == null) {
+            return null;
+        }
+        return i.getStore().getByKey(Cache.namespaceKeyFunc(namespace, name));
+    }
+
+    /**
+     * Get the last known state of the pods created by a controller.
+     * @param controller value of the {@link PodTemplateBuilder#LABEL_KUBERNETES_CONTROLLER} label
+     * @return the pods, empty if the cache is not synced
+     */
+    @NonNull
+    public List<Pod> getByController(@NonNull String controller) {
+        SharedIndexInformer<Pod> i = informer;
+        if (i == null) {
+            return Collections.emptyList();
+        }
+        return i.getIndexer().byIndex(CONTROLLER_INDEX, controller);
+    }
+
+    /**
+     * Get notified whenever the given pod is added, updated or deleted.
+     * @param name pod name
+     * @param callback called from the informer thread, must not block
+     * @return a handle to cancel the subscription
+     */
+    @NonNull
+    public Subscription subscribe(@NonNull String name, @NonNull Runnable callback) {
+        subscribers.computeIfAbsent(name, k -> new CopyOnWriteArraySet<>()).add(callback);
+        return () -> subscribers.computeIfPresent(name, (k, v) -> {
+            v.remove(callback);
+            return v.isEmpty() ? null : v;
+        });
+    }
+
+    /**
+     * Get notified of all pod events of the namespace.
+     * @param handler called from the informer thread, must not block
+     * @return a handle to cancel the subscription
+     */
+    @NonNull
+    public Subscription subscribe(@NonNull ResourceEventHandler<Pod> handler) {
+        handlers.add(handler);
+        return () -> handlers.remove(handler);
+    }
+
+    /**
+     * Stop the underlying informer.
+     */
+    public void stop() {
+        SharedIndexInformer<Pod> i = informer;
+        if (i != null) {
+            i.stop();
+        }
+    }
+
+    private void fire(Pod pod) {
+        if (pod == null || pod.getMetadata() == null) {
+            return;
+        }
+        Set<Runnable> callbacks = subscribers.get(pod.getMetadata().getName());
+        if (callbacks != null) {
+            for (Runnable callback : callbacks) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Pod subscriber failed for " + namespace, e);
+                }
+            }
+        }
+    }
+
+    private void notifyHandlers(Consumer<ResourceEventHandler<Pod>> event) {
+        for (ResourceEventHandler<Pod> handler : handlers) {
+            try {
+                event.accept(handler);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Pod event handler " + handler + " failed for " + namespace, e);
+            }
+        }
+    }
+
+    @Override
+    public void onAdd(Pod pod) {
+        fire(pod);
+        notifyHandlers(h -> h.onAdd(pod));
+    }
+
+    @Override
+    public void onUpdate(Pod oldPod, Pod newPod) {
+        fire(newPod);
+        notifyHandlers(h -> h.onUpdate(oldPod, newPod));
+    }
+
+    @Override
+    public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {
+        fire(pod);
+        notifyHandlers(h -> h.onDelete(pod, deletedFinalStateUnknown));
+    }
+
+    /**
+     * Handle to a subscription made with {@link #subscribe(String, Runnable)}.
+     */
+    @FunctionalInterface
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
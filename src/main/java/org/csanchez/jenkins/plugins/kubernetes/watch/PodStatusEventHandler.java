@@ -1,6 +1,5 @@
 package org.csanchez.jenkins.plugins.kubernetes.watch;
 
-import hudson.model.Node;
 import hudson.model.TaskListener;
 import hudson.slaves.SlaveComputer;
 import io.fabric8.kubernetes.api.model.ContainerState;
@@ -8,10 +7,9 @@ import io.fabric8.kubernetes.api.model.ContainerStatus;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodCondition;
 import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
-import java.util.Optional;
 import java.util.logging.Logger;
-import jenkins.model.Jenkins;
 import org.csanchez.jenkins.plugins.kubernetes.KubernetesSlave;
+import org.csanchez.jenkins.plugins.kubernetes.KubernetesSlaveIndex;
 
 /**
  * Process pod events and print relevant information in build logs.
@@ -23,18 +21,16 @@ public class PodStatusEventHandler implements ResourceEventHandler<Pod> {
 
     @Override
     public void onUpdate(Pod unused, Pod pod) {
-        Optional<Node> found = Jenkins.get().getNodes().stream()
-                .filter(n -> n.getNodeName().equals(pod.getMetadata().getName()))
-                .findFirst();
-        if (found.isPresent()) {
+        KubernetesSlave found = KubernetesSlaveIndex.get()
+                .get(pod.getMetadata().getNamespace(), pod.getMetadata().getName());
+        if (found != null) {
             final StringBuilder sb = new StringBuilder();
             pod.getStatus().getContainerStatuses().forEach(s -> sb.append(formatContainerStatus(s)));
             pod.getStatus()
                     .getConditions()
                     .forEach(c -> sb.append(formatPodStatus(c, pod.getStatus().getPhase(), sb)));
             if (!sb.toString().isEmpty()) {
-                ((KubernetesSlave) found.get())
-                        .getRunListener()
+                found.getRunListener()
                         .getLogger()
                         .println("[PodInfo] " + pod.getMetadata().getNamespace() + "/"
                                 + pod.getMetadata().getName() + sb);
@@ -0,0 +1,33 @@
+package io.jenkins.plugins.kubernetes;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+public class NoDelayProvisionerStrategyShareTest {
+
+    @Test
+    public void sharesProportionallyToCapacity() {
+        assertArrayEquals(new int[] {6, 3, 1}, NoDelayProvisionerStrategy.share(10, new int[] {60, 30, 10}));
+        assertArrayEquals(new int[] {5, 5}, NoDelayProvisionerStrategy.share(10, new int[] {20, 20}));
+    }
+
+    @Test
+    public void handsOutRoundingLeftovers() {
+        assertArrayEquals(new int[] {4, 3, 3}, NoDelayProvisionerStrategy.share(10, new int[] {5, 5, 5}));
+    }
+
+    @Test
+    public void neverExceedsCapacity() {
+        assertArrayEquals(new int[] {2, 0, 1}, NoDelayProvisionerStrategy.share(10, new int[] {2, 0, 1}));
+        assertArrayEquals(new int[] {1, 9}, NoDelayProvisionerStrategy.share(10, new int[] {1, 100}));
+    }
+
+    @Test
+    public void uncappedClouds() {
+        int uncapped = Integer.MAX_VALUE;
+        assertArrayEquals(new int[] {5, 5}, NoDelayProvisionerStrategy.share(10, new int[] {uncapped, uncapped}));
+        assertArrayEquals(new int[] {0}, NoDelayProvisionerStrategy.share(10, new int[] {0}));
+        assertArrayEquals(new int[0], NoDelayProvisionerStrategy.share(10, new int[0]));
+    }
+}
@@ -0,0 +1,76 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import hudson.slaves.Cloud;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class CloudLaunchStatisticsTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void latencyAndFailureRate() {
+        CloudLaunchStatistics statistics = CloudLaunchStatistics.get();
+        assertEquals(-1, statistics.getLatencyPercentile("kubernetes", 0.9));
+        assertEquals(0, statistics.getFailureRate("kubernetes"), 0);
+
+        for (int i = 1; i <= 10; i++) {
+            statistics.recordSuccess("kubernetes", i * 1000);
+        }
+        statistics.recordFailure("kubernetes");
+        statistics.recordFailure("kubernetes");
+        assertEquals(9000, statistics.getLatencyPercentile("kubernetes", 0.9));
+        assertEquals(5000, statistics.getLatencyPercentile("kubernetes", 0.5));
+        assertEquals(2.0 / 12, statistics.getFailureRate("kubernetes"), 0.0001);
+    }
+
+    @Test
+    public void slowFailingAndFullCloudsWeighLess() {
+        KubernetesCloud fast = new KubernetesCloud("fast");
+        KubernetesCloud slow = new KubernetesCloud("slow");
+        KubernetesCloud failing = new KubernetesCloud("failing");
+        KubernetesCloud full = new KubernetesCloud("full");
+        full.setContainerCap(1);
+        PodTemplate podTemplate = new PodTemplate();
+        podTemplate.setName("full-template");
+        full.addTemplate(podTemplate);
+        List<Cloud> clouds = List.of(fast, slow, failing, full);
+        j.jenkins.clouds.addAll(clouds);
+        KubernetesProvisioningLimits.get().register(full, podTemplate, 1);
+
+        CloudLaunchStatistics statistics = CloudLaunchStatistics.get();
+        for (int i = 0; i < 10; i++) {
+            statistics.recordSuccess("fast", 10_000);
+            statistics.recordSuccess("slow", 40_000);
+            statistics.recordFailure("failing");
+        }
+
+        Map<Cloud, Double> weights = statistics.getWeights(clouds, 5);
+        assertEquals(1.0, weights.get(fast), 0.0001);
+        assertEquals(0.25, weights.get(slow), 0.0001);
+        assertTrue(weights.get(failing) > 0);
+        assertTrue(weights.get(failing) < weights.get(slow));
+        assertEquals(0, weights.get(full), 0);
+
+        Random random = new Random(42);
+        int fastFirst = 0;
+        for (int i = 0; i < 1000; i++) {
+            List<Cloud> ordered = statistics.weightedOrder(clouds, 5, random);
+            assertSame(full, ordered.get(3));
+            if (ordered.get(0) == fast) {
+                fastFirst++;
+            }
+        }
+        // fast is picked first with probability 1 / (1 + 0.25 + 0.05)
+        assertTrue("fast cloud picked first " + fastFirst + " times", fastFirst > 700);
+    }
+}
@@ -0,0 +1,185 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.model.Label;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import java.net.InetAddress;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class DemandForecastTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private KubernetesMockServer server;
+    private KubernetesClient client;
+
+    @Before
+    public void setUp() {
+        server = new KubernetesMockServer();
+        server.init(InetAddress.getLoopbackAddress(), 0);
+        client = server.createClient();
+    }
+
+    @After
+    public void tearDown() {
+        DemandForecast.LABELS = Set.of();
+        KubernetesClientProvider.invalidateAll();
+        server.destroy();
+        client.close();
+    }
+
+    // a Monday
+    private static final ZonedDateTime START = ZonedDateTime.of(2024, 1, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    public void buckets() {
+        assertEquals(0, DemandForecast.bucket(START.withHour(0)));
+        assertEquals(1, DemandForecast.bucket(START.withHour(0).plusMinutes(DemandForecast.BUCKET_MINUTES)));
+        assertEquals(DemandForecast.BUCKETS - 1, DemandForecast.bucket(START.minusMinutes(8 * 60 + 1)));
+    }
+
+    @Test
+    public void bucketsDivideTheWeek() {
+        assertEquals(10, DemandForecast.bucketMinutes(10));
+        assertEquals(60, DemandForecast.bucketMinutes(90));
+        assertEquals(1, DemandForecast.bucketMinutes(0));
+        // 10080 minutes are not a multiple of 11, the last slot would be out of bounds
+        assertEquals(15, DemandForecast.bucketMinutes(11));
+    }
+
+    @Test
+    public void forecastsFromPreviousWeeks() {
+        DemandForecast forecast = DemandForecast.get();
+        Label label = Label.get("linux");
+        assertEquals(-1, forecast.getForecast("linux", START), 0);
+
+        for (int i = 0; i < 4; i++) {
+            forecast.record(label, START);
+        }
+        rollOneWeek(forecast, START);
+        assertEquals(4, forecast.getForecast("linux", START), 0.001);
+        assertEquals(0, forecast.getForecast("linux", START.plusMinutes(DemandForecast.BUCKET_MINUTES)), 0.001);
+
+        ZonedDateTime nextWeek = START.plusWeeks(1);
+        forecast.record(label, nextWeek);
+        forecast.record(label, nextWeek);
+        rollOneWeek(forecast, nextWeek);
+        assertEquals(0.3 * 2 + 0.7 * 4, forecast.getForecast("linux", START), 0.001);
+        assertEquals(-1, forecast.getForecast("windows", START), 0);
+    }
+
+    @Test
+    public void lateItemsCountInOpenSlot() {
+        DemandForecast forecast = DemandForecast.get();
+        Label label = Label.get("linux");
+        ZonedDateTime next = START.plusMinutes(DemandForecast.BUCKET_MINUTES);
+        forecast.record(label, START);
+        forecast.roll(next);
+        forecast.record(label, START);
+        forecast.roll(next.plusMinutes(DemandForecast.BUCKET_MINUTES));
+        assertEquals(1, forecast.getForecast("linux", START), 0.001);
+        assertEquals(1, forecast.getForecast("linux", next), 0.001);
+    }
+
+    @Test
+    public void slotEnds() {
+        assertEquals(START.plusMinutes(DemandForecast.BUCKET_MINUTES), DemandForecast.slotEnd(START));
+        assertEquals(
+                START.plusMinutes(DemandForecast.BUCKET_MINUTES),
+                DemandForecast.slotEnd(START.plusMinutes(DemandForecast.BUCKET_MINUTES).minusSeconds(1)));
+    }
+
+    @Test
+    public void addsAgentsHeldUntilTheEndOfTheSlot() throws Exception {
+        // pods are created but never get ready, so that the agents stay in provisioning
+        server.expect()
+                .post()
+                .withPath("/api/v1/namespaces/foo/pods")
+                .andReturn(
+                        201,
+                        new PodBuilder()
+                                .withNewMetadata()
+                                .withName("created")
+                                .withNamespace("foo")
+                                .endMetadata()
+                                .build())
+                .always();
+        KubernetesCloud cloud = new KubernetesCloud("k8s");
+        cloud.setServerUrl(client.getMasterUrl().toString());
+        cloud.setNamespace("foo");
+        cloud.setSkipTlsVerify(true);
+        PodTemplate template = new PodTemplate();
+        template.setName("linux");
+        template.setLabel("linux");
+        cloud.addTemplate(template);
+        j.jenkins.clouds.add(cloud);
+        DemandForecast.LABELS = Set.of("linux");
+
+        DemandForecast forecast = DemandForecast.get();
+        Label label = Label.get("linux");
+        for (int i = 0; i < 3; i++) {
+            forecast.record(label, START);
+        }
+        // shortly before the same slot of the next week
+        ZonedDateTime now = START.plusWeeks(1).minusMinutes(1);
+        for (ZonedDateTime t = START; t.isBefore(now); t = t.plusMinutes(DemandForecast.BUCKET_MINUTES)) {
+            forecast.roll(t);
+        }
+        forecast.run(now);
+
+        List<KubernetesSlave> agents = j.jenkins.getNodes().stream()
+                .filter(KubernetesSlave.class::isInstance)
+                .map(KubernetesSlave.class::cast)
+                .collect(Collectors.toList());
+        assertEquals(3, agents.size());
+        long holdUntil = START.plusWeeks(1)
+                .plusMinutes(DemandForecast.BUCKET_MINUTES + DemandForecast.GRACE_MINUTES)
+                .toInstant()
+                .toEpochMilli();
+        for (KubernetesSlave agent : agents) {
+            ForecastRetentionStrategy retention = (ForecastRetentionStrategy) agent.getRetentionStrategy();
+            assertEquals(holdUntil, retention.getHoldUntil());
+        }
+
+        // agents are only added once per slot
+        forecast.run(now.plusSeconds(30));
+        assertEquals(3, j.jenkins.getNodes().size());
+    }
+
+    @Test
+    public void keepsIdleAgentsUntilHoldTime() {
+        KubernetesComputer computer = mock(KubernetesComputer.class);
+        when(computer.isIdle()).thenReturn(true);
+        when(computer.isAcceptingTasks()).thenReturn(true);
+
+        new ForecastRetentionStrategy(0, System.currentTimeMillis() + 60_000).check(computer);
+        verify(computer, never()).setAcceptingTasks(false);
+
+        new ForecastRetentionStrategy(0, System.currentTimeMillis() - 1).check(computer);
+        verify(computer).setAcceptingTasks(false);
+    }
+
+    private static void rollOneWeek(DemandForecast forecast, ZonedDateTime from) {
+        ZonedDateTime end = from.plusWeeks(1);
+        for (ZonedDateTime t = from; !t.isAfter(end); t = t.plusMinutes(DemandForecast.BUCKET_MINUTES)) {
+            forecast.roll(t);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.csanchez.jenkins.plugins.kubernetes.KubernetesApiThrottle.Priority;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class KubernetesApiThrottleTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private static void failWith(KubernetesApiThrottle throttle, int code) {
+        assertThrows(KubernetesClientException.class, () -> throttle.call(Priority.HIGH, () -> {
+            throw new KubernetesClientException("failure", code, null);
+        }));
+    }
+
+    @Test
+    public void breakerShedsLowPriorityCalls() {
+        KubernetesApiThrottle throttle = new KubernetesApiThrottle(1000, 100, 3, 60000);
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            failWith(throttle, 503);
+        }
+        assertTrue(throttle.isOpen());
+
+        assertThrows(
+                KubernetesApiThrottle.Rejected.class, () -> throttle.call(Priority.LOW, calls::incrementAndGet));
+        assertEquals(0, calls.get());
+
+        assertEquals(1, (int) throttle.call(Priority.HIGH, calls::incrementAndGet));
+        assertEquals(2, (int) throttle.call(Priority.NORMAL, calls::incrementAndGet));
+    }
+
+    @Test
+    public void clientErrorsDoNotOpenBreaker() {
+        KubernetesApiThrottle throttle = new KubernetesApiThrottle(1000, 100, 3, 60000);
+        for (int i = 0; i < 5; i++) {
+            failWith(throttle, 404);
+        }
+        assertFalse(throttle.isOpen());
+        assertEquals(1000, throttle.getRate(), 0);
+    }
+
+    @Test
+    public void rateAdaptsToThrottling() {
+        KubernetesApiThrottle throttle = new KubernetesApiThrottle(1000, 100, 100, 60000);
+        failWith(throttle, 429);
+        failWith(throttle, 429);
+        assertEquals(250, throttle.getRate(), 0);
+        for (int i = 0; i < 20; i++) {
+            throttle.call(Priority.HIGH, () -> "ok");
+        }
+        assertEquals(1000, throttle.getRate(), 0);
+    }
+
+    @Test
+    public void lowPriorityLeavesRoomForHighPriority() {
+        // 10 tokens, refilled at 1 per second: low priority calls may only use the 5 first tokens
+        KubernetesApiThrottle throttle = new KubernetesApiThrottle(1, 10, 5, 60000);
+        for (int i = 0; i < 5; i++) {
+            throttle.call(Priority.LOW, () -> "ok");
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            throttle.call(Priority.HIGH, () -> "ok");
+        }
+        assertTrue("High priority calls should not wait", System.nanoTime() - start < 500_000_000L);
+    }
+
+    @Test
+    public void interruptedWaitIsNotRejected() {
+        KubernetesApiThrottle throttle = new KubernetesApiThrottle(0.01, 1, 5, 60000);
+        throttle.call(Priority.HIGH, () -> "ok");
+        Thread.currentThread().interrupt();
+        try {
+            KubernetesClientException e =
+                    assertThrows(KubernetesClientException.class, () -> throttle.call(Priority.HIGH, () -> "ok"));
+            assertFalse(e instanceof KubernetesApiThrottle.Rejected);
+            assertTrue(e.getCause() instanceof InterruptedIOException);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void invalidRateFallsBackToDefault() {
+        assertEquals(50, KubernetesApiThrottle.parseRate(null, 50), 0);
+        assertEquals(12.5, KubernetesApiThrottle.parseRate(" 12.5 ", 50), 0);
+        assertEquals(50, KubernetesApiThrottle.parseRate("fast", 50), 0);
+        assertEquals(50, KubernetesApiThrottle.parseRate("NaN", 50), 0);
+    }
+}
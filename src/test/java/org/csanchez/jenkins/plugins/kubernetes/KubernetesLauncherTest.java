@@ -0,0 +1,122 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.Computer;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class KubernetesLauncherTest {
+
+    /**
+     * More launches than threads in the launch pipeline.
+     */
+    private static final int LAUNCHES = KubernetesLaunchPipeline.POOL_SIZE + 4;
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private KubernetesMockServer server;
+    private KubernetesClient client;
+
+    @Before
+    public void setUp() {
+        server = new KubernetesMockServer();
+        server.init(InetAddress.getLoopbackAddress(), 0);
+        client = server.createClient();
+        KubernetesLaunchPipeline.ENABLED = true;
+    }
+
+    @After
+    public void tearDown() {
+        KubernetesLaunchPipeline.ENABLED = false;
+        KubernetesClientProvider.invalidateAll();
+        server.destroy();
+        client.close();
+    }
+
+    @Test
+    public void pipelineLaunchesHoldNoComputerThread() throws Exception {
+        server.expect()
+                .post()
+                .withPath("/api/v1/namespaces/foo/pods")
+                .andReturn(
+                        201,
+                        new PodBuilder()
+                                .withNewMetadata()
+                                .withName("created")
+                                .withNamespace("foo")
+                                .endMetadata()
+                                .build())
+                .always();
+        KubernetesCloud cloud = new KubernetesCloud("k8s");
+        cloud.setServerUrl(client.getMasterUrl().toString());
+        cloud.setNamespace("foo");
+        cloud.setSkipTlsVerify(true);
+        j.jenkins.clouds.add(cloud);
+        // the pods never get ready, so that all the launches are pending at once
+        assertNotNull(cloud.getOrCreatePodCache("foo"));
+        PodTemplate template = new PodTemplate();
+        template.setName("pending");
+        template.setSlaveConnectTimeout(60);
+
+        List<KubernetesSlave> agents = new ArrayList<>();
+        List<Future<?>> launches = new ArrayList<>();
+        for (int i = 0; i < LAUNCHES; i++) {
+            KubernetesSlave agent = new KubernetesSlave.Builder()
+                    .podTemplate(template)
+                    .cloud(cloud)
+                    .build();
+            j.jenkins.addNode(agent);
+            agents.add(agent);
+            Computer computer = agent.toComputer();
+            assertNotNull(computer);
+            launches.add(computer.connect(false));
+        }
+        for (Future<?> launch : launches) {
+            try {
+                launch.get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                // the computer reports that the agent is not connected yet, like for any inbound agent
+            }
+        }
+
+        assertEquals("computer threads held by launches", 0, threadsIn(KubernetesLauncher.class.getName(), "launch"));
+        assertTrue(
+                "launch pipeline threads",
+                threadsNamed(KubernetesLaunchPipeline.class.getSimpleName()) <= KubernetesLaunchPipeline.POOL_SIZE);
+        for (KubernetesSlave agent : agents) {
+            assertTrue(agent.getLauncher().isLaunchSupported());
+            assertNotNull(j.jenkins.getNode(agent.getNodeName()));
+        }
+    }
+
+    private static long threadsIn(String className, String methodName) {
+        return Thread.getAllStackTraces().values().stream()
+                .filter(stack -> Arrays.stream(stack)
+                        .anyMatch(frame -> frame.getClassName().equals(className)
+                                && frame.getMethodName().equals(methodName)))
+                .count();
+    }
+
+    private static long threadsNamed(String prefix) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith(prefix))
+                .count();
+    }
+}
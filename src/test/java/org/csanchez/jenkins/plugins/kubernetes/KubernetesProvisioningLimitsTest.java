@@ -1,15 +1,20 @@
 package org.csanchez.jenkins.plugins.kubernetes;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import org.junit.Rule;
 import org.junit.Test;
@@ -91,4 +96,119 @@ public class KubernetesProvisioningLimitsTest {
             }
         }
     }
+
+    @Test
+    public void countsStayWithinCapsUnderContention() throws Exception {
+        KubernetesCloud cloud1 = new KubernetesCloud("kubernetes-1");
+        cloud1.setContainerCap(5);
+        KubernetesCloud cloud2 = new KubernetesCloud("kubernetes-2");
+        cloud2.setContainerCap(3);
+        for (KubernetesCloud cloud : List.of(cloud1, cloud2)) {
+            for (int i = 1; i < 3; i++) {
+                PodTemplate pt = new PodTemplate();
+                pt.setName(cloud.name + "-podTemplate-" + i);
+                pt.setInstanceCap(2);
+                cloud.addTemplate(pt);
+            }
+            j.jenkins.clouds.add(cloud);
+        }
+        KubernetesProvisioningLimits limits = KubernetesProvisioningLimits.get();
+        List<KubernetesCloud> clouds = List.of(cloud1, cloud2);
+
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread monitor = new Thread(() -> {
+            while (!done.get()) {
+                for (KubernetesCloud cloud : clouds) {
+                    int global = limits.getGlobalCount(cloud.name);
+                    if (global < 0 || global > cloud.getContainerCap()) {
+                        failed.set(true);
+                    }
+                    for (PodTemplate template : cloud.getTemplates()) {
+                        int count = limits.getPodTemplateCount(template.getId());
+                        if (count < 0 || count > template.getInstanceCap()) {
+                            failed.set(true);
+                        }
+                    }
+                }
+            }
+        });
+        monitor.start();
+
+        int threads = 16;
+        ExecutorService threadPool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(threadPool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int k = 0; k < 2000; k++) {
+                    KubernetesCloud cloud = clouds.get(random.nextInt(clouds.size()));
+                    List<PodTemplate> templates = cloud.getTemplates();
+                    PodTemplate podTemplate = templates.get(random.nextInt(templates.size()));
+                    if (limits.register(cloud, podTemplate, 1)) {
+                        limits.unregister(cloud, podTemplate, 1);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        done.set(true);
+        monitor.join();
+        threadPool.shutdown();
+
+        assertFalse("Counts went over the caps or below zero", failed.get());
+        for (KubernetesCloud cloud : clouds) {
+            assertEquals(0, limits.getGlobalCount(cloud.name));
+            for (PodTemplate template : cloud.getTemplates()) {
+                assertEquals(0, limits.getPodTemplateCount(template.getId()));
+            }
+        }
+    }
+
+    @Test
+    public void reconcileFixesConfirmedDrift() throws Exception {
+        KubernetesCloud cloud = new KubernetesCloud("kubernetes");
+        cloud.setContainerCap(10);
+        PodTemplate podTemplate = new PodTemplate();
+        podTemplate.setName("podTemplate");
+        podTemplate.setInstanceCap(10);
+        cloud.addTemplate(podTemplate);
+        j.jenkins.clouds.add(cloud);
+        KubernetesProvisioningLimits limits = KubernetesProvisioningLimits.get();
+
+        // registered agents whose node did not show up yet
+        assertTrue(limits.register(cloud, podTemplate, 1));
+        assertTrue(limits.register(cloud, podTemplate, 1));
+
+        // still in flight, however many reconciliations run
+        limits.reconcile();
+        limits.reconcile();
+        assertEquals(2, limits.getGlobalCount(cloud.name));
+        assertEquals(2, limits.getPodTemplateCount(podTemplate.getId()));
+
+        // one of them is given up, the other one never shows up
+        limits.unregister(cloud, podTemplate, 1);
+        long later = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+        limits.reconcile(later);
+        assertEquals(1, limits.getGlobalCount(cloud.name));
+        limits.reconcile(later);
+        assertEquals(0, limits.getGlobalCount(cloud.name));
+        assertEquals(0, limits.getPodTemplateCount(podTemplate.getId()));
+
+        // counts of existing agents are kept
+        KubernetesSlave slave =
+                new KubernetesSlave.Builder().podTemplate(podTemplate).cloud(cloud).build();
+        assertTrue(limits.register(cloud, podTemplate, 1));
+        j.jenkins.addNode(slave);
+        limits.reconcile();
+        limits.reconcile();
+        assertEquals(1, limits.getGlobalCount(cloud.name));
+        assertEquals(1, limits.getPodTemplateCount(podTemplate.getId()));
+    }
 }
@@ -0,0 +1,64 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import hudson.model.Node;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class KubernetesSlaveIndexTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private KubernetesSlave createSlave() throws Exception {
+        KubernetesCloud cloud = new KubernetesCloud("kube");
+        j.jenkins.clouds.add(cloud);
+        PodTemplate podTemplate = new PodTemplate("foo", Collections.emptyList(), Collections.emptyList());
+        return new KubernetesSlave.Builder().podTemplate(podTemplate).cloud(cloud).build();
+    }
+
+    @Test
+    public void tracksNodeLifecycle() throws Exception {
+        KubernetesSlaveIndex index = KubernetesSlaveIndex.get();
+        KubernetesSlave slave = createSlave();
+        String podName = slave.getPodName();
+        assertNull(index.get("bar", podName));
+
+        j.jenkins.addNode(slave);
+        assertSame(slave, index.get(null, podName));
+        assertNull(index.get("bar", podName));
+
+        // namespace is assigned on launch
+        slave.setNamespace("bar");
+        assertSame(slave, index.get("bar", podName));
+        assertNull(index.get(null, podName));
+
+        j.jenkins.removeNode(slave);
+        assertNull(index.get("bar", podName));
+    }
+
+    @Test
+    public void followsReload() throws Exception {
+        KubernetesSlave slave = createSlave();
+        slave.setNamespace("bar");
+        j.jenkins.addNode(slave);
+        assertSame(slave, KubernetesSlaveIndex.get().get("bar", slave.getPodName()));
+
+        j.jenkins.reload();
+        Node reloaded = j.jenkins.getNode(slave.getNodeName());
+        assertNotSame(slave, reloaded);
+        assertSame(reloaded, KubernetesSlaveIndex.get().get("bar", slave.getPodName()));
+    }
+
+    @Test
+    public void ignoresNodesNotAdded() throws Exception {
+        KubernetesSlave slave = createSlave();
+        slave.setNamespace("bar");
+        assertNull(KubernetesSlaveIndex.get().get("bar", slave.getPodName()));
+    }
+}
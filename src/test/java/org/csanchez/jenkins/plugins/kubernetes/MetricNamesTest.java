@@ -28,4 +28,12 @@ public class MetricNamesTest {
 
         Assert.assertEquals(expected, actual);
     }
+
+    @Test
+    public void metricNameForLaunchStageAddsStage() {
+        String expected = "kubernetes.cloud.pods.launch.inflight.pod_running";
+        String actual = MetricNames.metricNameForLaunchStage("pod_running");
+
+        Assert.assertEquals(expected, actual);
+    }
 }
@@ -0,0 +1,99 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class PodCreationBatcherTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private static KubernetesClientException quotaExceeded() {
+        return new KubernetesClientException("pods \"foo\" is forbidden: exceeded quota: compute-resources", 403, null);
+    }
+
+    @Test
+    public void retriesQuotaErrors() throws Exception {
+        PodCreationBatcher batcher = new PodCreationBatcher(2, 3, 10, 50);
+        AtomicInteger attempts = new AtomicInteger();
+        String result = batcher.create("node-1", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw quotaExceeded();
+            }
+            return "created";
+        });
+        assertEquals("created", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void givesUpAfterMaxRetries() {
+        PodCreationBatcher batcher = new PodCreationBatcher(2, 2, 1, 5);
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(KubernetesClientException.class, () -> batcher.create("node-1", () -> {
+            attempts.incrementAndGet();
+            throw quotaExceeded();
+        }));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void doesNotRetryOtherErrors() {
+        PodCreationBatcher batcher = new PodCreationBatcher(2, 3, 1, 5);
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(KubernetesClientException.class, () -> batcher.create("node-1", () -> {
+            attempts.incrementAndGet();
+            throw new KubernetesClientException("invalid", 422, null);
+        }));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void limitsParallelism() throws Exception {
+        PodCreationBatcher batcher = new PodCreationBatcher(3, 0, 1, 5);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            names.add("node-" + i);
+        }
+        batcher.newBatch(names);
+        assertEquals(20, batcher.getPendingNodeNames().size());
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService threadPool = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (String name : names) {
+                futures.add(threadPool.submit(() -> batcher.create(name, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    return name;
+                })));
+            }
+            for (int i = 0; i < names.size(); i++) {
+                assertEquals(names.get(i), futures.get(i).get());
+            }
+        } finally {
+            threadPool.shutdownNow();
+        }
+        assertTrue("At most 3 creations should run at once, got " + maxRunning.get(), maxRunning.get() <= 3);
+        assertTrue(batcher.getPendingNodeNames().isEmpty());
+    }
+}
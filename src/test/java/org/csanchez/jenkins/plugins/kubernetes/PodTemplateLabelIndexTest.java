@@ -0,0 +1,75 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.Label;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class PodTemplateLabelIndexTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private static PodTemplate template(String name, String label) {
+        PodTemplate t = new PodTemplate();
+        t.setName(name);
+        t.setLabel(label);
+        return t;
+    }
+
+    @Test
+    public void candidatesHaveOneOfTheLabelAtoms() throws Exception {
+        PodTemplate java = template("java", "java linux");
+        PodTemplate go = template("go", "go linux");
+        PodTemplate windows = template("windows", "java windows");
+        PodTemplate none = template("none", null);
+        List<PodTemplate> templates = List.of(java, go, windows, none);
+        PodTemplateLabelIndex index = new PodTemplateLabelIndex(templates);
+
+        assertEquals(List.of(java, windows), index.getCandidates(Label.get("java")));
+        assertEquals(List.of(java, go, windows), index.getCandidates(Label.parseExpression("go || java")));
+        assertEquals(List.of(java, go, windows), index.getCandidates(Label.parseExpression("linux && !windows")));
+        assertEquals(List.of(), index.getCandidates(Label.get("python")));
+        // may match templates without any of the atoms
+        assertEquals(templates, index.getCandidates(Label.parseExpression("!windows")));
+        assertEquals(templates, index.getCandidates(null));
+    }
+
+    @Test
+    public void indexIsRebuiltWhenTemplatesChange() {
+        PodTemplate java = template("java", "java");
+        List<PodTemplate> templates = new ArrayList<>(List.of(java));
+        PodTemplateLabelIndex index = new PodTemplateLabelIndex(templates);
+        assertTrue(index.isFor(templates));
+
+        java.setLabel("go");
+        assertFalse(index.isFor(templates));
+
+        index = new PodTemplateLabelIndex(templates);
+        templates.add(template("python", "python"));
+        assertFalse(index.isFor(templates));
+    }
+
+    @Test
+    public void cloudReturnsMatchingTemplates() {
+        KubernetesCloud cloud = new KubernetesCloud("kubernetes");
+        PodTemplate java = template("java", "java");
+        cloud.addTemplate(java);
+        j.jenkins.clouds.add(cloud);
+        assertEquals(List.of(java), cloud.getTemplatesFor(Label.get("java")));
+
+        PodTemplate go = template("go", "go");
+        cloud.addDynamicTemplate(go);
+        assertEquals(List.of(go), cloud.getTemplatesFor(Label.get("go")));
+
+        java.setLabel("go");
+        assertEquals(List.of(java, go), cloud.getTemplatesFor(Label.get("go")));
+        assertEquals(List.of(), cloud.getTemplatesFor(Label.get("java")));
+    }
+}
@@ -62,6 +62,7 @@ import io.fabric8.kubernetes.api.model.Quantity;
 import io.fabric8.kubernetes.api.model.ResourceRequirementsBuilder;
 import io.fabric8.kubernetes.api.model.SecretEnvSource;
 import io.fabric8.kubernetes.api.model.Toleration;
+import io.fabric8.kubernetes.api.model.Volume;
 import io.fabric8.kubernetes.api.model.VolumeMount;
 import io.fabric8.kubernetes.api.model.VolumeMountBuilder;
 import java.io.IOException;
@@ -969,6 +970,67 @@ public class PodTemplateUtilsTest {
         checkParsed(pod);
     }
 
+    @Test
+    public void parsedYamlIsNotShared() {
+        String yaml = "metadata:\n  labels:\n    foo: bar\nspec:\n  containers:\n  - name: jnlp\n    image: agent\n";
+        Pod first = parseFromYaml(yaml);
+        first.getMetadata().getLabels().put("foo", "changed");
+        first.getSpec().getContainers().get(0).setImage("changed");
+        first.getSpec().getContainers().add(new ContainerBuilder().withName("other").build());
+
+        Pod second = parseFromYaml(yaml);
+        assertEquals("bar", second.getMetadata().getLabels().get("foo"));
+        assertEquals(1, second.getSpec().getContainers().size());
+        assertEquals("agent", second.getSpec().getContainers().get(0).getImage());
+    }
+
+    @Test
+    public void shouldCombineManyPodsLikePairs() {
+        Pod first = parseFromYaml("metadata:\n  labels:\n    a: first\n  annotations:\n    x: first\n"
+                + "spec:\n  serviceAccount: first\n  securityContext:\n    runAsUser: 1000\n    fsGroup: 3000\n"
+                + "  containers:\n  - name: jnlp\n    image: agent\n    env:\n    - name: A\n      value: first\n"
+                + "  volumes:\n  - name: home\n    emptyDir: {}\n  - name: m2\n    emptyDir: {}\n"
+                + "  tolerations:\n  - key: k1\n");
+        Pod second = parseFromYaml("metadata:\n  name: second\n  labels:\n    a: second\n    b: second\n"
+                + "spec:\n  hostNetwork: true\n  securityContext:\n    runAsGroup: 2000\n"
+                + "  containers:\n  - name: jnlp\n    env:\n    - name: B\n      value: second\n"
+                + "  - name: maven\n    image: maven\n"
+                + "  volumes:\n  - name: docker-sock\n    hostPath:\n      path: /var/run/docker.sock\n");
+        // m2 is a volume of the first pod replaced at a later level
+        Pod third = parseFromYaml("metadata:\n  labels:\n    c: third\n"
+                + "spec:\n  serviceAccount: third\n  securityContext:\n    runAsUser: 1001\n"
+                + "  initContainers:\n  - name: init\n    image: busybox\n  containers:\n  - name: maven\n"
+                + "    image: maven:3\n  volumes:\n  - name: m2\n    hostPath:\n      path: /tmp/m2\n"
+                + "  tolerations:\n  - key: k2\n");
+        // result of combine(combine(first, second), third) with the pairwise implementation, volumes are in the
+        // iteration order of a hash map keyed by their names rather than in declaration order
+        Pod expected = parseFromYaml("metadata:\n  name: second\n  labels:\n    a: second\n    b: second\n"
+                + "    c: third\n  annotations:\n    x: first\n"
+                + "spec:\n  serviceAccount: third\n  hostNetwork: true\n"
+                + "  securityContext:\n    runAsUser: 1001\n    runAsGroup: 2000\n    fsGroup: 3000\n"
+                + "  initContainers:\n  - name: init\n    image: busybox\n"
+                + "  containers:\n  - name: jnlp\n    image: agent\n    resources: {}\n    env:\n"
+                + "    - name: A\n      value: first\n    - name: B\n      value: second\n"
+                + "  - name: maven\n    image: maven:3\n    resources: {}\n"
+                + "  volumes:\n  - name: docker-sock\n    hostPath:\n      path: /var/run/docker.sock\n"
+                + "  - name: m2\n    hostPath:\n      path: /tmp/m2\n  - name: home\n    emptyDir: {}\n"
+                + "  tolerations:\n  - key: k1\n  - key: k2\n");
+
+        Pod result = combine(asList(null, first, second, third));
+        // parse the result back, so that fields left null and empty collections compare equal
+        assertEquals(
+                Serialization2.asYaml(expected), Serialization2.asYaml(parseFromYaml(Serialization2.asYaml(result))));
+        assertThat(
+                result.getSpec().getVolumes().stream().map(Volume::getName).collect(Collectors.toList()),
+                contains("docker-sock", "m2", "home"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectDuplicateContainersWhenCombiningManyPods() {
+        Pod pod = parseFromYaml("spec:\n  containers:\n  - name: jnlp\n  - name: jnlp\n");
+        combine(asList(parseFromYaml("{}"), pod, parseFromYaml("{}")));
+    }
+
     private static void checkParsed(Pod pod) {
         assertEquals(
                 Integer.valueOf("755", 8),
@@ -0,0 +1,82 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class UnwrappedTemplateCacheTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private static PodTemplate template(String name, String inheritFrom) {
+        PodTemplate t = new PodTemplate();
+        t.setName(name);
+        t.setInheritFrom(inheritFrom);
+        t.setServiceAccount(name + "-sa");
+        return t;
+    }
+
+    @Test
+    public void reusesUnwrappedTemplateUntilHierarchyChanges() {
+        UnwrappedTemplateCache cache = new UnwrappedTemplateCache();
+        PodTemplate parent = template("parent", null);
+        PodTemplate child = template("child", "parent");
+        child.setServiceAccount(null);
+        List<PodTemplate> all = new ArrayList<>(List.of(parent, child));
+
+        PodTemplate unwrapped = cache.unwrap(child, null, all);
+        assertEquals("parent-sa", unwrapped.getServiceAccount());
+        assertSame(unwrapped, cache.unwrap(child, null, all));
+
+        // parent content changed
+        parent.setServiceAccount("other-sa");
+        PodTemplate updated = cache.unwrap(child, null, all);
+        assertNotSame(unwrapped, updated);
+        assertEquals("other-sa", updated.getServiceAccount());
+
+        // parent content left out of toString changed
+        parent.setYaml("metadata:\n  labels:\n    role: parent\n");
+        PodTemplate withYaml = cache.unwrap(child, null, all);
+        assertNotSame(updated, withYaml);
+        assertEquals(List.of(parent.getYaml()), withYaml.getYamls());
+
+        // nested list replaced through a setter
+        parent.setContainers(List.of(new ContainerTemplate("parent-container", "parent-image")));
+        PodTemplate withContainer = cache.unwrap(child, null, all);
+        assertNotSame(withYaml, withContainer);
+        assertEquals("parent-image", withContainer.getContainers().get(0).getImage());
+        assertSame(withContainer, cache.unwrap(child, null, all));
+
+        // parent replaced
+        PodTemplate newParent = template("parent", null);
+        all.set(0, newParent);
+        assertEquals("parent-sa", cache.unwrap(child, null, all).getServiceAccount());
+
+        // defaults provider is part of the key
+        PodTemplate defaults = template("defaults", null);
+        all.add(defaults);
+        PodTemplate orphan = template("orphan", null);
+        orphan.setServiceAccount(null);
+        assertSame(orphan, cache.unwrap(orphan, null, all));
+        assertEquals("defaults-sa", cache.unwrap(orphan, "defaults", all).getServiceAccount());
+    }
+
+    @Test
+    public void invalidateDropsEntriesOfTemplate() {
+        UnwrappedTemplateCache cache = new UnwrappedTemplateCache();
+        PodTemplate parent = template("parent", null);
+        PodTemplate child = template("child", "parent");
+        List<PodTemplate> all = List.of(parent, child);
+
+        PodTemplate unwrapped = cache.unwrap(child, null, all);
+        cache.invalidate(child);
+        assertNotSame(unwrapped, cache.unwrap(child, null, all));
+    }
+}
@@ -0,0 +1,211 @@
+package org.csanchez.jenkins.plugins.kubernetes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.model.TaskListener;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class WarmPoolTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private KubernetesMockServer server;
+    private KubernetesClient client;
+
+    @Before
+    public void setUp() {
+        server = new KubernetesMockServer();
+        server.init(InetAddress.getLoopbackAddress(), 0);
+        client = server.createClient();
+    }
+
+    @After
+    public void tearDown() {
+        KubernetesClientProvider.invalidateAll();
+        server.destroy();
+        client.close();
+    }
+
+    @Test
+    public void templateSettings() {
+        PodTemplate template = new PodTemplate();
+        assertFalse(template.isWarmPoolEnabled());
+
+        template.setWarmPoolMin(2);
+        assertTrue(template.isWarmPoolEnabled());
+        assertEquals(2, template.getWarmPoolMax());
+
+        template.setWarmPoolMax(5);
+        assertEquals(5, template.getWarmPoolMax());
+
+        template.setWarmPoolMin(-1);
+        assertEquals(0, template.getWarmPoolMin());
+    }
+
+    @Test
+    public void scalesDownAfterQuietPeriod() {
+        PodTemplate template = new PodTemplate();
+        template.setWarmPoolMin(1);
+        template.setWarmPoolMax(3);
+        WarmPool pool = WarmPool.get();
+        long now = System.currentTimeMillis();
+        assertEquals(1, pool.getTarget(template, now));
+
+        pool.used(template.getId());
+        assertEquals(3, pool.getTarget(template, System.currentTimeMillis()));
+        assertEquals(1, pool.getTarget(template, System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+    }
+
+    @Test
+    public void fillsPoolWithinLimits() throws Exception {
+        // pods are created but never get ready, so that the agents stay in provisioning
+        server.expect()
+                .post()
+                .withPath("/api/v1/namespaces/foo/pods")
+                .andReturn(
+                        201,
+                        new PodBuilder()
+                                .withNewMetadata()
+                                .withName("created")
+                                .withNamespace("foo")
+                                .endMetadata()
+                                .build())
+                .always();
+        KubernetesCloud cloud = addCloud();
+        PodTemplate template = addTemplate(cloud, "pool");
+        template.setWarmPoolMin(3);
+        template.setInstanceCap(2);
+        WarmPool pool = WarmPool.get();
+
+        pool.execute(TaskListener.NULL);
+        List<KubernetesSlave> agents = kubernetesAgents();
+        assertEquals(2, agents.size());
+        for (KubernetesSlave agent : agents) {
+            assertTrue(WarmPool.isWarmPoolAgent(agent));
+            assertEquals(template.getId(), agent.getTemplateId());
+        }
+        KubernetesProvisioningLimits limits = KubernetesProvisioningLimits.get();
+        assertEquals(2, limits.getGlobalCount(cloud.name));
+        assertEquals(2, limits.getPodTemplateCount(template.getId()));
+
+        // launching agents count in the pool, and the template is at its cap anyway
+        template.setInstanceCap(10);
+        pool.execute(TaskListener.NULL);
+        assertEquals(3, kubernetesAgents().size());
+        assertEquals(3, limits.getPodTemplateCount(template.getId()));
+        pool.execute(TaskListener.NULL);
+        assertEquals(3, kubernetesAgents().size());
+    }
+
+    @Test
+    public void drainsIdleAgentsAboveTarget() throws Exception {
+        KubernetesCloud cloud = addCloud();
+        PodTemplate template = addTemplate(cloud, "pool");
+        template.setWarmPoolMin(1);
+        KubernetesSlave oldest = addAgent(template.getId(), "oldest", true, true, 1L);
+        KubernetesSlave older = addAgent(template.getId(), "older", true, true, 2L);
+        KubernetesSlave newest = addAgent(template.getId(), "newest", true, true, 3L);
+        KubernetesSlave busy = addAgent(template.getId(), "busy", true, false, 0L);
+
+        WarmPool.get().execute(TaskListener.NULL);
+
+        for (KubernetesSlave agent : List.of(oldest, older)) {
+            verify(agent.getComputer()).setAcceptingTasks(false);
+            verify(agent, atLeastOnce()).terminate();
+        }
+        verify(newest, never()).terminate();
+        verify(busy, never()).terminate();
+    }
+
+    @Test
+    public void removesOfflineAgents() throws Exception {
+        KubernetesCloud cloud = addCloud();
+        PodTemplate template = addTemplate(cloud, "pool");
+        template.setWarmPoolMin(2);
+        template.setInstanceCap(0);
+        KubernetesSlave offline = addAgent(template.getId(), "offline", false, true, 0L);
+        KubernetesSlave online = addAgent(template.getId(), "online", true, true, 0L);
+
+        WarmPool.get().execute(TaskListener.NULL);
+
+        verify(offline, atLeastOnce()).terminate();
+        verify(online, never()).terminate();
+    }
+
+    @Test
+    public void drainsDisabledAndRemovedTemplates() throws Exception {
+        KubernetesCloud cloud = addCloud();
+        PodTemplate disabled = addTemplate(cloud, "disabled");
+        KubernetesSlave ofDisabled = addAgent(disabled.getId(), "of-disabled", true, true, 0L);
+        KubernetesSlave ofRemoved = addAgent("removed", "of-removed", true, true, 0L);
+        KubernetesSlave busy = addAgent("removed", "busy", true, false, 0L);
+
+        WarmPool.get().execute(TaskListener.NULL);
+
+        verify(ofDisabled, atLeastOnce()).terminate();
+        verify(ofRemoved, atLeastOnce()).terminate();
+        verify(busy, never()).terminate();
+    }
+
+    private KubernetesCloud addCloud() {
+        KubernetesCloud cloud = new KubernetesCloud("k8s");
+        cloud.setServerUrl(client.getMasterUrl().toString());
+        cloud.setNamespace("foo");
+        cloud.setSkipTlsVerify(true);
+        j.jenkins.clouds.add(cloud);
+        return cloud;
+    }
+
+    private static PodTemplate addTemplate(KubernetesCloud cloud, String name) {
+        PodTemplate template = new PodTemplate();
+        template.setName(name);
+        template.setLabel(name);
+        cloud.addTemplate(template);
+        return template;
+    }
+
+    private KubernetesSlave addAgent(String templateId, String name, boolean online, boolean idle, long idleStart)
+            throws Exception {
+        KubernetesComputer computer = mock(KubernetesComputer.class);
+        when(computer.isOnline()).thenReturn(online);
+        when(computer.isOffline()).thenReturn(!online);
+        when(computer.isIdle()).thenReturn(idle);
+        when(computer.isAcceptingTasks()).thenReturn(true);
+        when(computer.getIdleStartMilliseconds()).thenReturn(idleStart);
+        KubernetesSlave agent = mock(KubernetesSlave.class);
+        when(agent.getNodeName()).thenReturn(name);
+        when(agent.getCloudName()).thenReturn("k8s");
+        when(agent.getTemplateId()).thenReturn(templateId);
+        when(agent.getNumExecutors()).thenReturn(1);
+        when(agent.getComputer()).thenReturn(computer);
+        when(agent.getRetentionStrategy()).thenReturn(new WarmPoolRetentionStrategy(5));
+        j.jenkins.addNode(agent);
+        return agent;
+    }
+
+    private List<KubernetesSlave> kubernetesAgents() {
+        return j.jenkins.getNodes().stream()
+                .filter(KubernetesSlave.class::isInstance)
+                .map(KubernetesSlave.class::cast)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,125 @@
+package org.csanchez.jenkins.plugins.kubernetes.pipeline;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.fabric8.kubernetes.client.dsl.ExecWatch;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContainerExecSessionTest {
+
+    private final ByteArrayOutputStream stdin = new ByteArrayOutputStream();
+    private final List<ContainerExecSession> idle = new ArrayList<>();
+    private ContainerExecSession.Output output;
+    private ContainerExecSession session;
+
+    @Before
+    public void setUp() {
+        ExecWatch watch = mock(ExecWatch.class);
+        when(watch.getInput()).thenReturn(stdin);
+        output = new ContainerExecSession.Output("token");
+        session = new ContainerExecSession(watch, new AtomicBoolean(true), new CountDownLatch(1), output, idle::add);
+    }
+
+    @Test
+    public void splitsOutputByCommand() throws Exception {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ContainerExecSession.Command command = session.start(first, Map.of(), in -> in.print("echo hello\n"));
+        assertThat(stdin.toString(StandardCharsets.UTF_8), containsString("echo hello\n"));
+        assertThat(stdin.toString(StandardCharsets.UTF_8), containsString("printf '\\001%s %d\\n' token $?"));
+
+        write("hello\n\u0001token 3\n");
+        assertEquals("hello\n", first.toString(StandardCharsets.UTF_8));
+        assertFalse(command.isAlive());
+        assertEquals(3, command.join());
+        assertEquals(List.of(session), idle);
+
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        command = session.start(second, Map.of(), in -> in.print("true\n"));
+        write("world\u0001token 0\n");
+        assertEquals("world", second.toString(StandardCharsets.UTF_8));
+        assertEquals(0, command.join());
+    }
+
+    @Test
+    public void splitsFrameAcrossWrites() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ContainerExecSession.Command command = session.start(out, Map.of(), in -> in.print("true\n"));
+        // a control character that does not start a frame is part of the output
+        for (byte b : "a\u0001b\u0001tok\u0001token 127\n".getBytes(StandardCharsets.UTF_8)) {
+            output.write(b);
+        }
+        assertEquals("a\u0001b\u0001tok", out.toString(StandardCharsets.UTF_8));
+        assertEquals(127, command.join());
+    }
+
+    @Test
+    public void commandStreamsAreNotAvailable() throws Exception {
+        ContainerExecSession.Command command =
+                session.start(new ByteArrayOutputStream(), Map.of(), in -> in.print("true\n"));
+        assertEquals(-1, command.getStdout().read());
+        assertEquals(-1, command.getStderr().read());
+        try (OutputStream in = command.getStdin()) {
+            in.write("ignored\n".getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(stdin.toString(StandardCharsets.UTF_8), not(containsString("ignored")));
+    }
+
+    @Test
+    public void failsCommandWhenClosed() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ContainerExecSession.Command command = session.start(out, Map.of(), in -> in.print("sleep 100\n"));
+        write("partial");
+        assertTrue(command.isAlive());
+        output.closed();
+        assertEquals(-1, command.join());
+        assertEquals("partial", out.toString(StandardCharsets.UTF_8));
+        assertTrue(idle.isEmpty());
+    }
+
+    @Test
+    public void sendsOnlyEnvironmentChanges() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        session.start(out, Map.of("A", "1", "B", "it's", "not-a-name", "x"), in -> in.print("true\n"));
+        String sent = stdin.toString(StandardCharsets.UTF_8);
+        assertThat(sent, containsString("export A='1'\n"));
+        assertThat(sent, containsString("export B='it'\\''s'\n"));
+        assertThat(sent, not(containsString("not-a-name")));
+        assertThat(sent, containsString("_jenkins_base_B=\"$B\"; fi\n"));
+        write("\u0001token 0\n");
+
+        stdin.reset();
+        session.start(out, Map.of("A", "2", "C", "3"), in -> in.print("true\n"));
+        sent = stdin.toString(StandardCharsets.UTF_8);
+        assertThat(sent, containsString("export A='2'\n"));
+        assertThat(sent, containsString("export C='3'\n"));
+        assertThat(sent, not(containsString("_jenkins_base_A=")));
+        assertThat(sent, containsString("export B=\"$_jenkins_base_B\"; unset _jenkins_base_B\n"));
+        assertThat(sent, containsString("else unset B; fi\n"));
+        write("\u0001token 0\n");
+
+        stdin.reset();
+        session.start(out, Map.of("A", "2", "C", "3"), in -> in.print("true\n"));
+        assertThat(stdin.toString(StandardCharsets.UTF_8), not(containsString("export")));
+    }
+
+    private void write(String s) throws Exception {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        output.write(bytes, 0, bytes.length);
+    }
+}
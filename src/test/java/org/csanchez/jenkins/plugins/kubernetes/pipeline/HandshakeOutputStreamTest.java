@@ -0,0 +1,61 @@
+package org.csanchez.jenkins.plugins.kubernetes.pipeline;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+public class HandshakeOutputStreamTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final ContainerExecDecorator.HandshakeOutputStream handshake =
+            new ContainerExecDecorator.HandshakeOutputStream(out, ready);
+
+    @Test
+    public void stripsAnswerSplitAcrossWrites() throws IOException {
+        for (int chunk = 1; chunk <= 50; chunk++) {
+            ByteArrayOutputStream chunked = new ByteArrayOutputStream();
+            CountDownLatch answered = new CountDownLatch(1);
+            var stream = new ContainerExecDecorator.HandshakeOutputStream(chunked, answered);
+            byte[] b = ("prompt$ " + stream.getSentinel() + "\nhello\n").getBytes(StandardCharsets.US_ASCII);
+            for (int off = 0; off < b.length; off += chunk) {
+                stream.write(b, off, Math.min(chunk, b.length - off));
+            }
+            assertEquals("chunks of " + chunk, 0, answered.getCount());
+            assertEquals("chunks of " + chunk, "prompt$ hello\n", chunked.toString(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void forwardsPartialMatch() throws IOException {
+        String partial = handshake.getSentinel().substring(0, 10);
+        write(partial + "x" + partial + "\n");
+        assertEquals(1, ready.getCount());
+        assertEquals(partial + "x" + partial + "\n", out.toString(StandardCharsets.US_ASCII));
+
+        write(handshake.getSentinel() + "\nafter " + handshake.getSentinel() + "\n");
+        assertEquals(0, ready.getCount());
+        assertEquals(
+                partial + "x" + partial + "\nafter " + handshake.getSentinel() + "\n",
+                out.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void proceedsWhenClosedBeforeAnswer() throws IOException {
+        String partial = handshake.getSentinel().substring(0, 5);
+        write("sh: not found\n" + partial);
+        assertEquals("sh: not found\n", out.toString(StandardCharsets.US_ASCII));
+        handshake.close();
+        assertEquals(0, ready.getCount());
+        assertEquals("sh: not found\n" + partial, out.toString(StandardCharsets.US_ASCII));
+    }
+
+    private void write(String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+        handshake.write(bytes, 0, bytes.length);
+    }
+}
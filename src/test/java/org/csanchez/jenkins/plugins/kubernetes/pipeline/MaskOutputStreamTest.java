@@ -0,0 +1,49 @@
+package org.csanchez.jenkins.plugins.kubernetes.pipeline;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class MaskOutputStreamTest {
+
+    private static final String COMMAND = "\"sh\" \"-c\" \"s3cr3t\" \"--token\" \"t0k3n\" trailing";
+    private static final boolean[] MASKS = {false, false, true, false, true};
+
+    @Test
+    public void masksStatements() throws IOException {
+        assertEquals("\"sh\" \"-c\" ******** \"--token\" ******** trailing", bulk(COMMAND, MASKS, 1000));
+    }
+
+    @Test
+    public void bulkWritesMatchSingleBytes() throws IOException {
+        String expected = perByte(COMMAND, MASKS);
+        for (int chunk = 1; chunk <= COMMAND.length(); chunk++) {
+            assertEquals("chunks of " + chunk, expected, bulk(COMMAND, MASKS, chunk));
+        }
+        assertEquals(COMMAND, bulk(COMMAND, null, 7));
+    }
+
+    private static String perByte(String command, boolean[] masks) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (var masked = new ContainerExecDecorator.MaskOutputStream(out, masks)) {
+            for (byte b : command.getBytes(StandardCharsets.UTF_8)) {
+                masked.write(b);
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String bulk(String command, boolean[] masks, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = command.getBytes(StandardCharsets.UTF_8);
+        try (var masked = new ContainerExecDecorator.MaskOutputStream(out, masks)) {
+            for (int off = 0; off < bytes.length; off += chunk) {
+                masked.write(bytes, off, Math.min(chunk, bytes.length - off));
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
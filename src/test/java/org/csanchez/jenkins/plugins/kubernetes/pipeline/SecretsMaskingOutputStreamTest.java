@@ -0,0 +1,62 @@
+package org.csanchez.jenkins.plugins.kubernetes.pipeline;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.Test;
+
+public class SecretsMaskingOutputStreamTest {
+
+    @Test
+    public void masksSecrets() throws IOException {
+        List<String> secrets = List.of("s3cr3t", "p4ss", "");
+        assertEquals("token=**** and ****\n", mask("token=s3cr3t and p4ss\n", secrets, 1000));
+        assertEquals("nothing to hide\n", mask("nothing to hide\n", secrets, 1000));
+        assertEquals("s3cr3 p4s", mask("s3cr3 p4s", secrets, 1000));
+    }
+
+    @Test
+    public void masksOverlappingSecretsOnce() throws IOException {
+        List<String> secrets = List.of("abc", "bcd", "cd");
+        assertEquals("x****x", mask("xabcdx", secrets, 1000));
+        assertEquals("****x", mask("abcabcx", secrets, 1000));
+    }
+
+    @Test
+    public void masksSecretsAcrossWrites() throws IOException {
+        List<String> secrets = List.of("s3cr3t", "ééé", "a\nmultiline\nsecret");
+        String log = "first s3cr3t\nééé then a\nmultiline\nsecret and s3cr3";
+        String expected = "first ****\n**** then **** and s3cr3";
+        for (int chunk = 1; chunk <= log.length(); chunk++) {
+            assertEquals("chunks of " + chunk, expected, mask(log, secrets, chunk));
+        }
+    }
+
+    @Test
+    public void holdsBackPossibleSecretsOnly() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        var masking = new SecretsMaskingOutputStream(out, new SecretsMaskingOutputStream.Matcher(List.of("s3cr3t")));
+        masking.write("line s3c".getBytes(StandardCharsets.UTF_8));
+        masking.flush();
+        assertEquals("line ", out.toString(StandardCharsets.UTF_8));
+        masking.write("r3t".getBytes(StandardCharsets.UTF_8));
+        assertEquals("line ****", out.toString(StandardCharsets.UTF_8));
+        masking.write("s3c".getBytes(StandardCharsets.UTF_8));
+        masking.close();
+        assertEquals("line ****s3c", out.toString(StandardCharsets.UTF_8));
+    }
+
+    private static String mask(String log, List<String> secrets, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = log.getBytes(StandardCharsets.UTF_8);
+        try (var masking = new SecretsMaskingOutputStream(out, new SecretsMaskingOutputStream.Matcher(secrets))) {
+            for (int off = 0; off < bytes.length; off += chunk) {
+                masking.write(bytes, off, Math.min(chunk, bytes.length - off));
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
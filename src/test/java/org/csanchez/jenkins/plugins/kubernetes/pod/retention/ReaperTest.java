@@ -132,6 +132,49 @@ public class ReaperTest {
         assertEquals("node not removed from jenkins", j.jenkins.getNodes().size(), 1);
     }
 
+    @Test
+    public void testReapAgentsWithList() throws IOException, InterruptedException {
+        KubernetesCloud cloud = addCloud("k8s", "foo");
+        String watchPodsPath = "/api/v1/namespaces/foo/pods?allowWatchBookmarks=true&watch=true";
+        server.expect()
+                .withPath(watchPodsPath)
+                .andUpgradeToWebSocket()
+                .open()
+                .done()
+                .always();
+
+        KubernetesSlave running = addNode(cloud, "running-123", "running");
+        addNode(cloud, "deleted-123", "deleted");
+        String listPodsPath = "/api/v1/namespaces/foo/pods?limit=500&labelSelector="
+                + Utils.toUrlEncoded(PodTemplateBuilder.LABEL_KUBERNETES_CONTROLLER + "="
+                        + PodTemplateUtils.sanitizeLabel(cloud.getJenkinsUrlOrNull()));
+        server.expect()
+                .withPath(listPodsPath)
+                .andReturn(
+                        200,
+                        new PodListBuilder()
+                                .withNewMetadata()
+                                .endMetadata()
+                                .withItems(createPod(running))
+                                .build())
+                .once();
+
+        // activate reaper
+        Reaper r = Reaper.getInstance();
+        r.maybeActivate();
+
+        // only the agent without a listed pod is removed
+        assertEquals("node removed from jenkins", 1, j.jenkins.getNodes().size());
+        assertSame(running, j.jenkins.getNode("running"));
+
+        kubeClientRequests()
+                .assertRequestCount(listPodsPath, 1)
+                // listed pod is not checked individually
+                .assertRequestCount("/api/v1/namespaces/foo/pods/running-123", 0)
+                // unmatched agent is checked individually
+                .assertRequestCount("/api/v1/namespaces/foo/pods/deleted-123", 1);
+    }
+
     @Test
     public void testWatchFailOnActivate() throws IOException, InterruptedException {
         KubernetesCloud cloud = addCloud("k8s", "foo");
@@ -207,15 +250,15 @@ public class ReaperTest {
         Reaper r = Reaper.getInstance();
         r.maybeActivate();
 
-        waitForKubeClientRequests(2).assertRequestCount(watchPodsPath, 2);
+        // after Gone error, the watch is restarted without waiting for a new computer
+        waitForKubeClientRequests(3).assertRequestCount(watchPodsPath, 3);
 
         // error status event should be filtered out
         listener.expectNoEvents();
 
-        // wait until watch is removed
-        System.out.println("Waiting for watch to be removed");
-        assertShouldNotBeWatching(r, cloud);
-        System.out.println("Watch removed");
+        System.out.println("Waiting for the watch to be restarted");
+        assertShouldBeWatching(r, cloud);
+        System.out.println("Watch restarted");
 
         // launch computer
         KubernetesSlave n2 = addNode(cloud, "p1-123", "p1");
@@ -0,0 +1,87 @@
+package org.csanchez.jenkins.plugins.kubernetes.watch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.csanchez.jenkins.plugins.kubernetes.PodTemplateBuilder;
+import org.junit.Test;
+
+public class PodCacheTest {
+
+    private static Pod pod(String name) {
+        return new PodBuilder()
+                .withNewMetadata()
+                .withName(name)
+                .withNamespace("foo")
+                .addToLabels(PodTemplateBuilder.LABEL_KUBERNETES_CONTROLLER, "http___localhost_8080_jenkins")
+                .endMetadata()
+                .build();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void dispatchesEventsToSubscribers() {
+        PodCache cache = new PodCache("foo");
+        cache.attach(mock(SharedIndexInformer.class));
+        List<String> events = new ArrayList<>();
+        AtomicInteger podEvents = new AtomicInteger();
+        PodCache.Subscription subscription = cache.subscribe(new ResourceEventHandler<>() {
+            @Override
+            public void onAdd(Pod pod) {
+                events.add("add " + pod.getMetadata().getName());
+            }
+
+            @Override
+            public void onUpdate(Pod oldPod, Pod newPod) {
+                events.add("update " + newPod.getMetadata().getName());
+            }
+
+            @Override
+            public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {
+                events.add("delete " + pod.getMetadata().getName());
+            }
+        });
+        try (PodCache.Subscription s = cache.subscribe("a", podEvents::incrementAndGet)) {
+            cache.onAdd(pod("a"));
+            cache.onUpdate(pod("a"), pod("a"));
+            cache.onAdd(pod("b"));
+            cache.onDelete(pod("a"), false);
+        }
+        subscription.close();
+        cache.onAdd(pod("c"));
+        cache.onUpdate(pod("a"), pod("a"));
+
+        assertEquals(List.of("add a", "update a", "add b", "delete a"), events);
+        assertEquals(3, podEvents.get());
+    }
+
+    @Test
+    public void subscriberFailureDoesNotStopDispatch() {
+        PodCache cache = new PodCache("foo");
+        AtomicInteger calls = new AtomicInteger();
+        cache.subscribe(new ResourceEventHandler<>() {
+            @Override
+            public void onAdd(Pod pod) {
+                throw new IllegalStateException("boom");
+            }
+
+            @Override
+            public void onUpdate(Pod oldPod, Pod newPod) {}
+
+            @Override
+            public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {}
+        });
+        cache.subscribe("a", calls::incrementAndGet);
+        cache.onAdd(pod("a"));
+        assertEquals(1, calls.get());
+        assertTrue(cache.getByController("http___localhost_8080_jenkins").isEmpty());
+    }
+}